@@ -1,7 +1,10 @@
 package admin;
 
 import controller.IAdminConsole;
+import model.ChannelStatistics;
 import model.ComputationRequestInfo;
+import model.ControllerUtilization;
+import model.OperatorThroughput;
 import util.Config;
 import cli.Command;
 import cli.MyShell;
@@ -162,6 +165,42 @@ public class AdminConsole implements IAdminConsole, INotificationCallback, Runna
 		return null;
 	}
 	
+	@Override
+	@Command
+	public List<OperatorThroughput> throughput() throws RemoteException {
+		if(server != null){
+			try {
+				return server.throughput();
+			} catch (ConnectException e) {}
+		}
+		ccIsOfflineMessage();
+		return null;
+	}
+	
+	@Override
+	@Command
+	public ControllerUtilization utilization() throws RemoteException {
+		if(server != null){
+			try {
+				return server.utilization();
+			} catch (ConnectException e) {}
+		}
+		ccIsOfflineMessage();
+		return null;
+	}
+	
+	@Override
+	@Command
+	public List<ChannelStatistics> channels() throws RemoteException {
+		if(server != null){
+			try {
+				return server.channels();
+			} catch (ConnectException e) {}
+		}
+		ccIsOfflineMessage();
+		return null;
+	}
+	
 	//IGNORE
 	@Override
 	public Key getControllerPublicKey() throws RemoteException {
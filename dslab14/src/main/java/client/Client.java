@@ -4,9 +4,11 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.PrintStream;
+import java.security.GeneralSecurityException;
 import java.security.PrivateKey;
 import java.security.PublicKey;
 import java.util.Arrays;
+import java.util.List;
 
 import javax.crypto.Cipher;
 
@@ -18,12 +20,20 @@ import util.Base64Channel;
 import util.Channel;
 import util.Channel.NotConnectedException;
 import util.Config;
-import util.Keys;
+import util.KeyCache;
+import util.NioChannel;
+import util.FramedChannel;
+import util.GcmSecureChannel;
 import util.SecureChannel;
 import util.SecurityUtil;
+import util.SwitchableChannel;
+import util.TcpChannel;
 
 public class Client implements IClientCli, Runnable {
 	private final String B64 = "a-zA-Z0-9/+";
+	private static final String CANNOT_CONNECT = "Error: cannot connect to cloud controller";
+	/** answer of a controller which has too many open sessions */
+	private static final byte[] OVERLOADED = "!overloaded".getBytes();
 	
 	private String componentName;
 	private Config config;
@@ -32,6 +42,12 @@ public class Client implements IClientCli, Runnable {
 	private Channel channelToCC;
 
 	private String loggedInUser;
+	private KeyCache keyCache = new KeyCache();
+	private boolean binaryFraming;
+	private boolean gcm;
+	
+	// ticket of the last session, to log in again without the RSA handshake
+	private SessionTicket sessionTicket;
 
 	/**
 	 * @param componentName
@@ -47,6 +63,8 @@ public class Client implements IClientCli, Runnable {
 			InputStream userRequestStream, PrintStream userResponseStream) {
 		this.componentName = componentName;
 		this.config = config;
+		this.binaryFraming = FramedChannel.NEGOTIATION_TOKEN.equals(config.getString("controller.framing"));
+		this.gcm = GcmSecureChannel.NEGOTIATION_TOKEN.equals(config.getString("controller.cipher"));
 
 		shell = new MyShell(componentName, userRequestStream, userResponseStream);
 		shell.register(this);
@@ -90,6 +108,13 @@ public class Client implements IClientCli, Runnable {
 	@Override
 	@Command
 	public String logout() throws IOException {
+		// a ticket is only needed for the next login, so it is fetched when the session ends
+		String ticketError = requestTicket();
+		String toPrint = endSession();
+		return ticketError == null ? toPrint : toPrint + "\n" + ticketError;
+	}
+	
+	private String endSession() {
 		String toPrint = sendToCloudController("logout");
 		channelToCC.close();
 		loggedInUser = null;
@@ -125,7 +150,7 @@ public class Client implements IClientCli, Runnable {
 	public String exit() throws IOException {	
 		if (channelToCC != null && channelToCC.isConnected()) {	
 			try {
-				logout();
+				endSession();
 			} catch(Exception ex) { }
 			channelToCC.close();			
 		}
@@ -158,11 +183,17 @@ public class Client implements IClientCli, Runnable {
 			return "Error: An username " + username + " is unknown!";
 		}
 		
+		if(sessionTicket != null && username.equals(sessionTicket.getUser()) && resume())
+		{
+			loggedInUser = username;
+			return "Successfully authenticated (resumed session)";
+		}
+		
 		//Create Channel
-		channelToCC = new Base64Channel();
+		channelToCC = new Base64Channel(createTransport());
 		boolean connected = channelToCC.connect(config.getString("controller.host"), config.getInt("controller.tcp.port"));
 		if(!connected)
-			return "Error: cannot connect to cloud controller";
+			return CANNOT_CONNECT;
 		
 		//Send challenge to controller
 		byte[] challenge = SecurityUtil.createBase64Challenge();
@@ -170,29 +201,141 @@ public class Client implements IClientCli, Runnable {
 		if(!ok)
 		{
 			channelToCC.close();
-			return "Error: cannot connect to cloud controller";
+			return CANNOT_CONNECT;
 		}
-		ok = readAndProcessAnswer(username, challenge, ownPrivateKey);
-		if(!ok)
+		String error = readAndProcessAnswer(username, challenge, ownPrivateKey);
+		if(error != null)
 		{
 			channelToCC.close();
-			return "Error: cannot connect to cloud controller";
+			return error;
 		}
 		//Return result
 		loggedInUser = username;
 		return "Successfully authenticated";
 	}
 	
+	/**
+	 * Opens a session with the ticket of the last session. Every ticket can
+	 * only be used once.
+	 * 
+	 * @return true, if the session was resumed
+	 */
+	private boolean resume()
+	{
+		String ticket = sessionTicket.getTicket();
+		byte[] ticketSecret = sessionTicket.getSecret();
+		sessionTicket = null;
+		
+		channelToCC = new Base64Channel(createTransport());
+		if(!channelToCC.connect(config.getString("controller.host"), config.getInt("controller.tcp.port")))
+			return false;
+		try {
+			byte[] clientNonce = SecurityUtil.createBase64Challenge();
+			channelToCC.sendMessage("!resume " + ticket + " " + new String(clientNonce) + requestedOptions());
+			String answer = channelToCC.readMessage();
+			if(answer == null || !answer.startsWith("!resumed "))
+			{
+				channelToCC.close();
+				return false;
+			}
+			String[] answerParts = answer.split(" ");
+			byte[] controllerChallenge = answerParts[1].getBytes();
+			byte[] secretKey = SecurityUtil.deriveKeyMaterial(ticketSecret, "key", clientNonce, controllerChallenge);
+			byte[] ivParam = Arrays.copyOf(SecurityUtil.deriveKeyMaterial(ticketSecret, "iv", clientNonce, controllerChallenge), 16);
+			channelToCC = createSecureChannel(answerParts, 2, secretKey, ivParam);
+			channelToCC.sendMessage(controllerChallenge);
+		}
+		catch (Exception e)
+		{
+			channelToCC.close();
+			return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * @return the unconnected line channel to the controller
+	 */
+	private Channel createTransport()
+	{
+		return "nio".equals(config.getString("controller.transport")) ? new NioChannel() : new TcpChannel();
+	}
+	
+	/**
+	 * @return the options appended to the first handshake message, which ask
+	 *         for binary frames and AES-GCM
+	 */
+	private String requestedOptions()
+	{
+		return (binaryFraming ? " " + FramedChannel.NEGOTIATION_TOKEN : "") + (gcm ? " " + GcmSecureChannel.NEGOTIATION_TOKEN : "");
+	}
+	
+	/**
+	 * Creates the channel for the encrypted messages with the options the
+	 * controller accepted in its answer: binary frames instead of Base64
+	 * encoded lines, AES-GCM instead of AES-CTR.
+	 */
+	private Channel createSecureChannel(String[] answerParts, int firstOption, byte[] secretKey, byte[] ivParam) throws IOException, GeneralSecurityException
+	{
+		List<String> options = Arrays.asList(answerParts).subList(Math.min(firstOption, answerParts.length), answerParts.length);
+		Channel transport = channelToCC;
+		if(options.contains(FramedChannel.NEGOTIATION_TOKEN))
+			transport = ((SwitchableChannel) channelToCC).switchToFrames();
+		if(options.contains(GcmSecureChannel.NEGOTIATION_TOKEN))
+			return new GcmSecureChannel(transport, secretKey, ivParam, true);
+		return new SecureChannel(transport, secretKey, ivParam);
+	}
+	
+	/**
+	 * Asks the controller for a ticket for the next session of the logged in
+	 * user.
+	 * 
+	 * @return null, if a ticket was received or nobody is logged in,
+	 *         otherwise the reason why there is no ticket
+	 */
+	private String requestTicket()
+	{
+		if(loggedInUser == null)
+			return null;
+		String answer = sendToCloudController("ticket");
+		String[] answerParts = answer.split(" ");
+		if(answerParts.length == 3 && answerParts[0].equals("!ticket"))
+		{
+			sessionTicket = new SessionTicket(loggedInUser, answerParts[1], Base64.decode(answerParts[2]));
+			return null;
+		}
+		return "No session ticket for the next login: " + answer;
+	}
+	
+	/**
+	 * @return the ticket for the next login or null, if there is none
+	 */
+	public SessionTicket getSessionTicket()
+	{
+		return sessionTicket;
+	}
+	
+	/**
+	 * Replaces the ticket for the next login, e.g. to replay a ticket which
+	 * was already used.
+	 * 
+	 * @param sessionTicket the ticket or null, to log in with the RSA handshake
+	 */
+	public void setSessionTicket(SessionTicket sessionTicket)
+	{
+		this.sessionTicket = sessionTicket;
+	}
+	
 	private boolean sendChallenge(String username, byte[] challenge)
 	{
 		File publicKeyOfController = new File(config.getString("controller.key"));
 		
 		//Create unencrypted message
-		String unencryptedMessage = String.format("!authenticate %s %s", username, new String(challenge));
+		String unencryptedMessage = String.format("!authenticate %s %s", username, new String(challenge)) + requestedOptions();
 		
 		//Encrypt message using public key of host
 		try {
-			PublicKey publicKey = Keys.readPublicPEM(publicKeyOfController);
+			PublicKey publicKey = keyCache.getPublicKey(publicKeyOfController);
 			Cipher cipher = Cipher.getInstance("RSA/NONE/OAEPWithSHA256AndMGF1Padding");
 			cipher.init(Cipher.ENCRYPT_MODE, publicKey);
 			byte[] encryptedMessage = cipher.doFinal(unencryptedMessage.getBytes());
@@ -205,19 +348,24 @@ public class Client implements IClientCli, Runnable {
 		return true;
 	}
 
-	private boolean readAndProcessAnswer(String username, byte[] givenChallenge, File ownPrivateKey)
+	/**
+	 * @return null, if the session was opened, otherwise the error to show
+	 */
+	private String readAndProcessAnswer(String username, byte[] givenChallenge, File ownPrivateKey)
 	{
 		try{
 			//Read message from client
 			byte[] encryptedMessage = channelToCC.readByteMessage();
+			if(Arrays.equals(encryptedMessage, OVERLOADED))
+				return "Error: the cloud controller is overloaded, please try again later";
 			
 			//Decrypt it
-			PrivateKey privateKey = Keys.readPrivatePEM(ownPrivateKey);
+			PrivateKey privateKey = keyCache.getPrivateKey(ownPrivateKey);
 			Cipher privateCipher = Cipher.getInstance("RSA/NONE/OAEPWithSHA256AndMGF1Padding");
 			privateCipher.init(Cipher.DECRYPT_MODE, privateKey);
 			byte[] decryptedMessage = privateCipher.doFinal(encryptedMessage);
 			String message = new String(decryptedMessage);
-			assert message.matches("!ok ["+B64+"]{43}= ["+B64+"]{43}= ["+B64+"]{43}= ["+B64+"]{22}==") : "2nd message";
+			assert message.matches("!ok ["+B64+"]{43}= ["+B64+"]{43}= ["+B64+"]{43}= ["+B64+"]{22}==( binary)?( gcm)?") : "2nd message";
 			
 			//Split to parts
 			String[] messageParts = message.split(" ");
@@ -228,9 +376,9 @@ public class Client implements IClientCli, Runnable {
 			
 			//Check the sent user challenge
 			if(!Arrays.equals(givenChallenge, userChallengeAnswer))
-				return false;
+				return CANNOT_CONNECT;
 			//Create SecureChannel with secret key and ivParam
-			channelToCC = new SecureChannel((Base64Channel) channelToCC, secretKey, ivParam);
+			channelToCC = createSecureChannel(messageParts, 5, secretKey, ivParam);
 			
 			//Send controller challenge back over secure channel
 			channelToCC.sendMessage(controllerChallenge);
@@ -238,8 +386,8 @@ public class Client implements IClientCli, Runnable {
 		catch(Exception e)
 		{
 			e.printStackTrace(); //TODO: delete
-			return false;
+			return CANNOT_CONNECT;
 		}
-		return true;
+		return null;
 	}
 }
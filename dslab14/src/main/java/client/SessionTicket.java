@@ -0,0 +1,35 @@
+package client;
+
+/**
+ * A ticket issued by the cloud controller at the end of a session, with which
+ * the user opens the next session without the RSA handshake.
+ */
+public class SessionTicket {
+
+	private final String user;
+	private final String ticket;
+	private final byte[] secret;
+
+	/**
+	 * @param user the user the ticket was issued to
+	 * @param ticket the encrypted ticket, Base64 encoded as sent by the controller
+	 * @param secret the secret the session keys are derived from
+	 */
+	public SessionTicket(String user, String ticket, byte[] secret) {
+		this.user = user;
+		this.ticket = ticket;
+		this.secret = secret;
+	}
+
+	public String getUser() {
+		return user;
+	}
+
+	public String getTicket() {
+		return ticket;
+	}
+
+	public byte[] getSecret() {
+		return secret;
+	}
+}
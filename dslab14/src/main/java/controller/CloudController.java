@@ -9,9 +9,11 @@ import java.io.PrintStream;
 import java.io.PrintWriter;
 import java.net.DatagramSocket;
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.UnknownHostException;
+import java.nio.channels.ServerSocketChannel;
 import java.rmi.AlreadyBoundException;
 import java.rmi.ConnectException;
 import java.rmi.NotBoundException;
@@ -23,31 +25,38 @@ import java.security.InvalidKeyException;
 import java.security.Key;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Set;
-
-import javax.crypto.Mac;
 
+import model.ChannelStatistics;
 import model.ComputationRequestInfo;
+import model.ControllerUtilization;
+import model.OperatorThroughput;
 import util.Config;
 import util.Keys;
+import util.MacPool;
 import admin.INotificationCallback;
 import cli.Command;
 import cli.MyShell;
+import controller.balancing.LeastUsageBalancer;
+import controller.balancing.LoadBalancer;
+import controller.balancing.PowerOfTwoChoicesBalancer;
+import controller.balancing.RoundRobinBalancer;
+import controller.balancing.WeightedBalancer;
 import controller.communication.ClientCommunicationThread;
 import controller.communication.NodeCommunicationThread;
+import controller.communication.NodeConnectionPool;
+import controller.info.CircuitBreaker;
 import controller.info.ClientInfo;
 import controller.info.NodeInfo;
+import controller.info.ResultCache;
 
 public class CloudController implements ICloudControllerCli, IAdminConsole, Runnable {
 	
-	private static final String ALGORITHM = "HmacSHA256";
-	
 	private Key secretKey;
-	private Mac mac;
+	private MacPool macPool;
 
 	private String componentName;
 	private Config config;
@@ -96,8 +105,7 @@ public class CloudController implements ICloudControllerCli, IAdminConsole, Runn
 		}
 
 		try {
-			this.mac = Mac.getInstance(ALGORITHM);
-			mac.init(secretKey);
+			this.macPool = new MacPool(secretKey);
 		} catch (NoSuchAlgorithmException e) {
 			shell.writeLine("algorithm for mac is invalid...");
 		} catch (InvalidKeyException e) {
@@ -106,13 +114,22 @@ public class CloudController implements ICloudControllerCli, IAdminConsole, Runn
 		}	
 		
 		try {
-			serverSocket = new ServerSocket(config.getInt("tcp.port"));
-			clientCommunicationThread = new ClientCommunicationThread(this, serverSocket, config, userConfig, mac, shell);
+			if(!config.getString("controller.io").equals("blocking")) {
+				// a channel backed server socket lets the client communication use selectors
+				serverSocket = ServerSocketChannel.open().socket();
+				serverSocket.bind(new InetSocketAddress(config.getInt("tcp.port")));
+			} else {
+				serverSocket = new ServerSocket(config.getInt("tcp.port"));
+			}
+			clientCommunicationThread = new ClientCommunicationThread(this, serverSocket, config, userConfig, macPool, shell);
 			clientCommunicationThread.start();
 			
 			datagramSocket = new DatagramSocket(config.getInt("udp.port"));
 			nodeCommunicationThread = new NodeCommunicationThread(this, datagramSocket, 
-					config.getInt("node.timeout"), config.getInt("node.checkPeriod"), config.getInt("controller.rmax"), shell);
+					config.getInt("node.timeout"), config.getInt("node.checkPeriod"), config.getInt("controller.rmax"), 
+					config.getInt("node.pool.size"), config.getInt("node.pool.idleTimeout"), 
+					config.getInt("node.breaker.failures"), config.getInt("node.breaker.openTime"), 
+					createLoadBalancer(config.getString("controller.balancer")), shell);
 			nodeCommunicationThread.start();
 						
 			new Thread(shell).start();
@@ -138,38 +155,78 @@ public class CloudController implements ICloudControllerCli, IAdminConsole, Runn
 		shell.writeLine("Controller " + componentName + " is online!");
 	}
 		
-	public NodeInfo getNodeWithLeastUsage(Character operation) {
-		List<NodeInfo> nodeInfos = nodeCommunicationThread.getNodeInfosWithAvailableOperation(operation);
+	/**
+	 * @param operation the operator
+	 * @return the node selected by the configured load balancer, or null
+	 */
+	public NodeInfo selectNode(char operation) {
+		return nodeCommunicationThread.selectNode(operation);
+	}
+	
+	public void addUsage(NodeInfo nodeInfo, long usage) {
+		nodeCommunicationThread.addUsage(nodeInfo, usage);
+	}
+	
+	public void reportNodeSuccess(NodeInfo nodeInfo) {
+		nodeCommunicationThread.reportSuccess(nodeInfo);
+	}
+	
+	public void reportNodeFailure(NodeInfo nodeInfo) {
+		nodeCommunicationThread.reportFailure(nodeInfo);
+	}
+	
+	/**
+	 * @param operation the operator
+	 * @param excluded the nodes which must not be selected
+	 * @return the online node with the least usage other than the excluded ones
+	 *         which supports the operator, or null
+	 */
+	public NodeInfo selectAlternativeNode(char operation, Collection<NodeInfo> excluded) {
 		NodeInfo leastUsageNode = null;
 		
-		if(nodeInfos.size() > 0) {
-			leastUsageNode = nodeInfos.get(0);
-			
-			for (int i = 1; i < nodeInfos.size(); i++) {
-				if(nodeInfos.get(i).getUsage() < leastUsageNode.getUsage()) {
-					leastUsageNode = nodeInfos.get(i);
-				}
+		List<NodeInfo> nodeInfos = nodeCommunicationThread.getNodeInfosWithAvailableOperation(operation);
+		for (int n = 0; n < nodeInfos.size(); n++) {
+			NodeInfo nodeInfo = nodeInfos.get(n);
+			if(!excluded.contains(nodeInfo) && (leastUsageNode == null || nodeInfo.getUsage() < leastUsageNode.getUsage())) {
+				leastUsageNode = nodeInfo;
 			}
 		}
 		
 		return leastUsageNode;
 	}
 	
-	public String listOfOperators() {
-		Set<Character> operators = new HashSet<>();
-		String str = "";
-
-		for (NodeInfo nodeInfo : nodeCommunicationThread.nodeInfos()) {
-			if(nodeInfo.getStatus().equals(NodeInfo.Status.ONLINE)) {
-				operators.addAll(nodeInfo.getOperators());
+	/**
+	 * @param operators the operators of a term
+	 * @return the online node with the least usage which supports all given operators, or null
+	 */
+	public NodeInfo getNodeWithAllOperations(String operators) {
+		NodeInfo leastUsageNode = null;
+		
+		List<NodeInfo> nodeInfos = nodeCommunicationThread.getNodeInfosWithAvailableOperation(operators.charAt(0));
+		for (int n = 0; n < nodeInfos.size(); n++) {
+			NodeInfo nodeInfo = nodeInfos.get(n);
+			boolean supportsAll = true;
+			for (int i = 1; i < operators.length() && supportsAll; i++) {
+				supportsAll = nodeInfo.getOperators().contains(operators.charAt(i));
+			}
+			if(supportsAll && (leastUsageNode == null || nodeInfo.getUsage() < leastUsageNode.getUsage())) {
+				leastUsageNode = nodeInfo;
 			}
 		}
-
-		for (Character character : operators) {
-			str += character;
-			
-		}		
-		return str;
+		
+		return leastUsageNode;
+	}
+	
+	public NodeConnectionPool getConnectionPool(NodeInfo nodeInfo) {
+		return nodeCommunicationThread.getConnectionPool(nodeInfo);
+	}
+	
+	public String listOfOperators() {
+		return nodeCommunicationThread.getAvailableOperators();
+	}
+	
+	public boolean isOperatorSupported(char operator) {
+		return nodeCommunicationThread.isOperationAvailable(operator);
 	}
 	
 	@Override
@@ -178,7 +235,12 @@ public class CloudController implements ICloudControllerCli, IAdminConsole, Runn
 		String nodes = "";
 		
 		for(NodeInfo nodeInfo : nodeCommunicationThread.nodeInfos()) {
-			nodes += "IP: " + nodeInfo.getIp() + " Port: " + nodeInfo.getTcpPort() + " " + nodeInfo.getStatus().getText() + "  Usage: " + nodeInfo.getUsage() + "\n";
+			nodes += "IP: " + nodeInfo.getIp() + " Port: " + nodeInfo.getTcpPort() + " " + nodeInfo.getStatus().getText() + "  Usage: " + nodeInfo.getUsage();
+			CircuitBreaker circuitBreaker = nodeInfo.getCircuitBreaker();
+			if(circuitBreaker != null && circuitBreaker.getState() != CircuitBreaker.State.CLOSED) {
+				nodes += " Circuit: " + circuitBreaker.getState().getText();
+			}
+			nodes += "\n";
 		}
 		
 		return nodes.isEmpty() ? "no nodes registered" : nodes;
@@ -196,17 +258,35 @@ public class CloudController implements ICloudControllerCli, IAdminConsole, Runn
 		return users;
 	}
 
+	@Command
+	public String cache() throws IOException {
+		ResultCache resultCache = clientCommunicationThread.getResultCache();
+		long hits = resultCache.getHits();
+		long lookups = hits + resultCache.getMisses();
+		
+		return "Cached: " + resultCache.getSize() + "/" + resultCache.getCapacity() + " Hits: " + hits
+				+ " Misses: " + resultCache.getMisses() + " Hit rate: " + (lookups == 0 ? 0 : hits * 100 / lookups) + "%"
+				+ " Coalesced: " + clientCommunicationThread.getCoalescedRequests()
+				+ " Hedged: " + clientCommunicationThread.getHedgedRequests();
+	}
+
 	@Override
 	@Command
 	public String exit() throws IOException {
 		stop = true;
 		
 		clientCommunicationThread.shutdown();
+		if (nodeCommunicationThread != null) {
+			nodeCommunicationThread.closeConnectionPools();
+		}
 		
 		try {
 			LocateRegistry.getRegistry(config.getInt("controller.rmi.port")).unbind(config.getString("binding.name"));
 		} catch (NotBoundException e1) { }
 		UnicastRemoteObject.unexportObject(this, true);
+		if (registry != null) {
+			UnicastRemoteObject.unexportObject(registry, true);
+		}
 		
 		shell.close();		
 		
@@ -223,6 +303,19 @@ public class CloudController implements ICloudControllerCli, IAdminConsole, Runn
 		return "Shut down completed! Bye ..";
 	}
 	
+	private LoadBalancer createLoadBalancer(String name) {
+		if(name.equals("least-usage")) {
+			return new LeastUsageBalancer();
+		} else if(name.equals("power-of-two")) {
+			return new PowerOfTwoChoicesBalancer();
+		} else if(name.equals("weighted")) {
+			return new WeightedBalancer();
+		} else if(name.equals("round-robin")) {
+			return new RoundRobinBalancer();
+		}
+		throw new IllegalArgumentException("Unknown load balancer " + name);
+	}
+	
 	public boolean isStop() {
 		return stop;
 	}
@@ -314,6 +407,21 @@ public class CloudController implements ICloudControllerCli, IAdminConsole, Runn
 		return clientCommunicationThread.getUsageOfOperators();
 	}
 
+	@Override
+	public List<OperatorThroughput> throughput() throws RemoteException {
+		return clientCommunicationThread.getOperatorThroughput();
+	}
+
+	@Override
+	public ControllerUtilization utilization() throws RemoteException {
+		return clientCommunicationThread.getUtilization();
+	}
+
+	@Override
+	public List<ChannelStatistics> channels() throws RemoteException {
+		return clientCommunicationThread.getChannelStatistics();
+	}
+
 	@Override
 	public Key getControllerPublicKey() throws RemoteException {
 		return null;
@@ -1,7 +1,10 @@
 package controller;
 
 import admin.INotificationCallback;
+import model.ChannelStatistics;
 import model.ComputationRequestInfo;
+import model.ControllerUtilization;
+import model.OperatorThroughput;
 
 import java.rmi.Remote;
 import java.rmi.RemoteException;
@@ -67,6 +70,39 @@ public interface IAdminConsole extends Remote {
 	 */
 	LinkedHashMap<Character, Long> statistics() throws RemoteException;
 
+	/**
+	 * Returns how often each operator was requested within the last 1, 5 and
+	 * 15 minutes and in total, so the current load can be told apart from the
+	 * lifetime counts of {@link #statistics()}.
+	 *
+	 * @return the throughput of every operator requested so far
+	 * @throws RemoteException
+	 *             if a remote error occurs
+	 */
+	List<OperatorThroughput> throughput() throws RemoteException;
+
+	/**
+	 * Returns the number of open client sessions, running and waiting
+	 * computations compared to the configured limits, and how many sessions
+	 * and computations were rejected so far.
+	 *
+	 * @return the utilization of the cloud controller
+	 * @throws RemoteException
+	 *             if a remote error occurs
+	 */
+	ControllerUtilization utilization() throws RemoteException;
+
+	/**
+	 * Returns the traffic of the client connections: bytes and messages in
+	 * each direction and the latencies of reading and sending, first of all
+	 * connections since the start, then of every open connection.
+	 *
+	 * @return the statistics of the client connections
+	 * @throws RemoteException
+	 *             if a remote error occurs
+	 */
+	List<ChannelStatistics> channels() throws RemoteException;
+
 	/**
 	 * Returns the public key used by the cloud controller for encrypted
 	 * connections.
@@ -0,0 +1,82 @@
+package controller.balancing;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import controller.info.NodeInfo;
+
+/**
+ * Binary min-heap of nodes ordered by usage, which knows the position of
+ * every node. The node with the least usage is found in O(1), a changed
+ * usage is restored in O(log n).
+ */
+class IndexedMinHeap {
+
+	private final NodeInfo[] heap;
+	private final Map<NodeInfo, Integer> positions;
+
+	IndexedMinHeap(List<NodeInfo> nodeInfos) {
+		heap = nodeInfos.toArray(new NodeInfo[nodeInfos.size()]);
+		positions = new IdentityHashMap<>(heap.length);
+		for (int i = 0; i < heap.length; i++) {
+			positions.put(heap[i], i);
+		}
+		for (int i = heap.length / 2 - 1; i >= 0; i--) {
+			siftDown(i);
+		}
+	}
+
+	synchronized NodeInfo peek() {
+		return heap.length == 0 ? null : heap[0];
+	}
+
+	/**
+	 * Restores the heap order after the usage of the node changed.
+	 */
+	synchronized void update(NodeInfo nodeInfo) {
+		Integer position = positions.get(nodeInfo);
+		if(position != null) {
+			siftDown(siftUp(position));
+		}
+	}
+
+	private int siftUp(int i) {
+		while (i > 0) {
+			int parent = (i - 1) / 2;
+			if(heap[parent].getUsage() <= heap[i].getUsage()) {
+				break;
+			}
+			swap(i, parent);
+			i = parent;
+		}
+		return i;
+	}
+
+	private void siftDown(int i) {
+		while (true) {
+			int left = 2 * i + 1;
+			int right = left + 1;
+			int smallest = i;
+			if(left < heap.length && heap[left].getUsage() < heap[smallest].getUsage()) {
+				smallest = left;
+			}
+			if(right < heap.length && heap[right].getUsage() < heap[smallest].getUsage()) {
+				smallest = right;
+			}
+			if(smallest == i) {
+				return;
+			}
+			swap(i, smallest);
+			i = smallest;
+		}
+	}
+
+	private void swap(int i, int j) {
+		NodeInfo node = heap[i];
+		heap[i] = heap[j];
+		heap[j] = node;
+		positions.put(heap[i], i);
+		positions.put(heap[j], j);
+	}
+}
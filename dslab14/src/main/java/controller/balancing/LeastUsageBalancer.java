@@ -0,0 +1,58 @@
+package controller.balancing;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import controller.info.NodeInfo;
+import controller.info.NodeRoutingIndex;
+
+/**
+ * Selects the node with the least usage, using one {@link IndexedMinHeap}
+ * per operator.
+ */
+public class LeastUsageBalancer implements LoadBalancer {
+
+	private static final int OPERATOR_RANGE = 128;
+
+	private volatile IndexedMinHeap[] heaps = new IndexedMinHeap[OPERATOR_RANGE];
+	private volatile Map<NodeInfo, List<IndexedMinHeap>> heapsOfNode = new IdentityHashMap<>();
+
+	@Override
+	public synchronized void rebuild(NodeRoutingIndex routingIndex) {
+		IndexedMinHeap[] newHeaps = new IndexedMinHeap[OPERATOR_RANGE];
+		Map<NodeInfo, List<IndexedMinHeap>> newHeapsOfNode = new IdentityHashMap<>();
+
+		for (char operator = 0; operator < OPERATOR_RANGE; operator++) {
+			List<NodeInfo> nodeInfos = routingIndex.getNodes(operator);
+			if(!nodeInfos.isEmpty()) {
+				newHeaps[operator] = new IndexedMinHeap(nodeInfos);
+				for (NodeInfo nodeInfo : nodeInfos) {
+					if(!newHeapsOfNode.containsKey(nodeInfo)) {
+						newHeapsOfNode.put(nodeInfo, new ArrayList<IndexedMinHeap>());
+					}
+					newHeapsOfNode.get(nodeInfo).add(newHeaps[operator]);
+				}
+			}
+		}
+		heapsOfNode = newHeapsOfNode;
+		heaps = newHeaps;
+	}
+
+	@Override
+	public NodeInfo select(char operator) {
+		IndexedMinHeap heap = operator < OPERATOR_RANGE ? heaps[operator] : null;
+		return heap == null ? null : heap.peek();
+	}
+
+	@Override
+	public void usageChanged(NodeInfo nodeInfo) {
+		List<IndexedMinHeap> nodeHeaps = heapsOfNode.get(nodeInfo);
+		if(nodeHeaps != null) {
+			for (int i = 0; i < nodeHeaps.size(); i++) {
+				nodeHeaps.get(i).update(nodeInfo);
+			}
+		}
+	}
+}
@@ -0,0 +1,40 @@
+package controller.balancing;
+
+import controller.info.NodeInfo;
+import controller.info.NodeRoutingIndex;
+
+/**
+ * Strategy to select the node which computes an operation.
+ * <p/>
+ * Implementations are used concurrently by all client connections and must
+ * be thread-safe.
+ */
+public interface LoadBalancer {
+
+	/**
+	 * Called whenever the routing index was rebuilt, i.e. when the online
+	 * nodes or their supported operators changed.
+	 *
+	 * @param routingIndex
+	 *            the current routing index
+	 */
+	void rebuild(NodeRoutingIndex routingIndex);
+
+	/**
+	 * Selects an online node supporting the given operator.
+	 *
+	 * @param operator
+	 *            the operator to compute
+	 * @return the selected node or null, if no online node supports the
+	 *         operator
+	 */
+	NodeInfo select(char operator);
+
+	/**
+	 * Called after the usage of the given node was increased.
+	 *
+	 * @param nodeInfo
+	 *            the node
+	 */
+	void usageChanged(NodeInfo nodeInfo);
+}
@@ -0,0 +1,44 @@
+package controller.balancing;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import controller.info.NodeInfo;
+import controller.info.NodeRoutingIndex;
+
+/**
+ * Picks two random nodes supporting the operator and selects the one with
+ * the lower usage. Needs no shared state besides the routing index.
+ */
+public class PowerOfTwoChoicesBalancer implements LoadBalancer {
+
+	private volatile NodeRoutingIndex routingIndex = new NodeRoutingIndex();
+
+	@Override
+	public void rebuild(NodeRoutingIndex routingIndex) {
+		this.routingIndex = routingIndex;
+	}
+
+	@Override
+	public NodeInfo select(char operator) {
+		List<NodeInfo> nodeInfos = routingIndex.getNodes(operator);
+		int size = nodeInfos.size();
+		if(size < 2) {
+			return size == 0 ? null : nodeInfos.get(0);
+		}
+
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		int first = random.nextInt(size);
+		int second = random.nextInt(size - 1);
+		if(second >= first) {
+			second++;
+		}
+		NodeInfo one = nodeInfos.get(first);
+		NodeInfo other = nodeInfos.get(second);
+		return one.getUsage() <= other.getUsage() ? one : other;
+	}
+
+	@Override
+	public void usageChanged(NodeInfo nodeInfo) {
+	}
+}
@@ -0,0 +1,37 @@
+package controller.balancing;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import controller.info.NodeInfo;
+import controller.info.NodeRoutingIndex;
+
+/**
+ * Selects the nodes supporting an operator one after the other.
+ */
+public class RoundRobinBalancer implements LoadBalancer {
+
+	private static final int OPERATOR_RANGE = 128;
+
+	private volatile NodeRoutingIndex routingIndex = new NodeRoutingIndex();
+	private AtomicIntegerArray counters = new AtomicIntegerArray(OPERATOR_RANGE);
+
+	@Override
+	public void rebuild(NodeRoutingIndex routingIndex) {
+		this.routingIndex = routingIndex;
+	}
+
+	@Override
+	public NodeInfo select(char operator) {
+		List<NodeInfo> nodeInfos = routingIndex.getNodes(operator);
+		if(nodeInfos.isEmpty()) {
+			return null;
+		}
+		int next = counters.getAndIncrement(operator) & Integer.MAX_VALUE;
+		return nodeInfos.get(next % nodeInfos.size());
+	}
+
+	@Override
+	public void usageChanged(NodeInfo nodeInfo) {
+	}
+}
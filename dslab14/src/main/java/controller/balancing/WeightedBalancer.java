@@ -0,0 +1,68 @@
+package controller.balancing;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import controller.info.NodeInfo;
+import controller.info.NodeRoutingIndex;
+
+/**
+ * Selects a random node supporting the operator, where the chance of a node
+ * is proportional to the resources it committed in the two-phase commit.
+ */
+public class WeightedBalancer implements LoadBalancer {
+
+	private static final int OPERATOR_RANGE = 128;
+
+	private volatile Table table = new Table(new NodeRoutingIndex());
+
+	@Override
+	public void rebuild(NodeRoutingIndex routingIndex) {
+		table = new Table(routingIndex);
+	}
+
+	@Override
+	public NodeInfo select(char operator) {
+		if(operator >= OPERATOR_RANGE) {
+			return null;
+		}
+		Table current = table;
+		List<NodeInfo> nodeInfos = current.nodeInfos[operator];
+		long[] weights = current.cumulativeWeights[operator];
+		if(weights.length == 0) {
+			return null;
+		}
+
+		long value = ThreadLocalRandom.current().nextLong(weights[weights.length - 1]);
+		int position = Arrays.binarySearch(weights, value + 1);
+		return nodeInfos.get(position >= 0 ? position : -position - 1);
+	}
+
+	@Override
+	public void usageChanged(NodeInfo nodeInfo) {
+	}
+
+	/**
+	 * The nodes per operator together with their cumulative weights.
+	 */
+	private static class Table {
+		private final List<NodeInfo>[] nodeInfos;
+		private final long[][] cumulativeWeights;
+
+		@SuppressWarnings("unchecked")
+		Table(NodeRoutingIndex routingIndex) {
+			nodeInfos = (List<NodeInfo>[]) new List<?>[OPERATOR_RANGE];
+			cumulativeWeights = new long[OPERATOR_RANGE][];
+			for (char operator = 0; operator < OPERATOR_RANGE; operator++) {
+				nodeInfos[operator] = routingIndex.getNodes(operator);
+				cumulativeWeights[operator] = new long[nodeInfos[operator].size()];
+				long sum = 0;
+				for (int i = 0; i < nodeInfos[operator].size(); i++) {
+					sum += Math.max(1, nodeInfos[operator].get(i).getResources());
+					cumulativeWeights[operator][i] = sum;
+				}
+			}
+		}
+	}
+}
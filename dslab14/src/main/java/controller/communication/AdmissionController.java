@@ -0,0 +1,102 @@
+package controller.communication;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import model.ControllerUtilization;
+
+/**
+ * Limits the number of concurrent client sessions and computations.
+ * <p/>
+ * Sessions beyond the limit are rejected at once. Computations beyond the
+ * limit wait in a bounded queue for a limited time; if the queue is full or
+ * the time is up, they are rejected, so a load peak cannot pile up threads
+ * and memory in the controller.
+ */
+public class AdmissionController {
+
+	private final int maxSessions;
+	private final int maxComputes;
+	private final int maxQueued;
+	private final long queueTimeout;
+
+	private final Semaphore sessions;
+	private final Semaphore computes;
+	private final AtomicInteger queued = new AtomicInteger();
+	private final LongAdder rejectedSessions = new LongAdder();
+	private final LongAdder rejectedComputes = new LongAdder();
+
+	/**
+	 * @param maxSessions the maximal number of open client sessions
+	 * @param maxComputes the maximal number of computations running at the same time
+	 * @param maxQueued the maximal number of computations waiting for a free slot
+	 * @param queueTimeout the maximal time in ms a computation waits for a free slot
+	 */
+	public AdmissionController(int maxSessions, int maxComputes, int maxQueued, long queueTimeout) {
+		this.maxSessions = maxSessions;
+		this.maxComputes = maxComputes;
+		this.maxQueued = maxQueued;
+		this.queueTimeout = queueTimeout;
+		this.sessions = new Semaphore(maxSessions);
+		this.computes = new Semaphore(maxComputes, true);
+	}
+
+	/**
+	 * @return true, if the session may be opened; it has to be closed with
+	 *         {@link #closeSession()}
+	 */
+	public boolean openSession() {
+		if(sessions.tryAcquire()) {
+			return true;
+		}
+		rejectedSessions.increment();
+		return false;
+	}
+
+	public void closeSession() {
+		sessions.release();
+	}
+
+	/**
+	 * Waits for a free computation slot, if the wait queue is not full.
+	 *
+	 * @return true, if the computation may run; it has to be finished with
+	 *         {@link #finishCompute()}
+	 */
+	public boolean startCompute() {
+		if(computes.tryAcquire()) {
+			return true;
+		}
+		if(queued.incrementAndGet() > maxQueued) {
+			queued.decrementAndGet();
+			rejectedComputes.increment();
+			return false;
+		}
+		try {
+			if(computes.tryAcquire(queueTimeout, TimeUnit.MILLISECONDS)) {
+				return true;
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			queued.decrementAndGet();
+		}
+		rejectedComputes.increment();
+		return false;
+	}
+
+	public void finishCompute() {
+		computes.release();
+	}
+
+	/**
+	 * @return the current usage of the limits
+	 */
+	public ControllerUtilization getUtilization() {
+		return new ControllerUtilization(maxSessions - sessions.availablePermits(), maxSessions,
+				maxComputes - computes.availablePermits(), maxComputes, queued.get(), maxQueued,
+				rejectedSessions.sum(), rejectedComputes.sum());
+	}
+}
@@ -0,0 +1,61 @@
+package controller.communication;
+
+/**
+ * The commands a client can send to the cloud controller once it is
+ * authenticated.
+ * <p/>
+ * {@link #lookup(String)} matches the first word of a request against the
+ * table without allocating, the order of the constants is the order in which
+ * they are tried.
+ */
+public enum ClientCommand {
+	COMPUTE("compute"),
+	CREDITS("credits"),
+	BUY("buy"),
+	LIST("list"),
+	LOGOUT("logout"),
+	TICKET("ticket");
+
+	private static final ClientCommand[] TABLE = values();
+
+	private final String name;
+
+	private ClientCommand(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * @return the name of the command as sent by the client
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @param request the request line
+	 * @return the offset of the first argument of the command in the request
+	 */
+	public int argumentOffset(String request) {
+		int offset = name.length();
+		while (offset < request.length() && request.charAt(offset) == ' ') {
+			offset++;
+		}
+		return offset;
+	}
+
+	/**
+	 * @param request the request line
+	 * @return the command the request starts with or null, if it is no known
+	 *         command
+	 */
+	public static ClientCommand lookup(String request) {
+		for (ClientCommand command : TABLE) {
+			int length = command.name.length();
+			if(request.startsWith(command.name)
+					&& (request.length() == length || request.charAt(length) == ' ')) {
+				return command;
+			}
+		}
+		return null;
+	}
+}
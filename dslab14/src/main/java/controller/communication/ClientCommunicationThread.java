@@ -1,13 +1,11 @@
 package controller.communication;
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.PrintWriter;
 import java.net.ServerSocket;
-import java.net.Socket;
-import java.security.MessageDigest;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.security.GeneralSecurityException;
 import java.security.PrivateKey;
 import java.security.PublicKey;
 import java.util.ArrayList;
@@ -17,57 +15,126 @@ import java.util.Comparator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
 
 import javax.crypto.Cipher;
-import javax.crypto.Mac;
 import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
 
 import org.bouncycastle.util.encoders.Base64;
 
 import cli.MyShell;
 import util.Base64Channel;
 import util.Channel;
+import util.ChannelMetrics;
 import util.Channel.NotConnectedException;
 import util.Config;
-import util.Keys;
+import util.ExecutorFactory;
+import util.FramedChannel;
+import util.GcmSecureChannel;
+import util.KeyCache;
+import util.MacPool;
+import util.MeteredChannel;
+import util.NioChannel;
 import util.SecureChannel;
+import util.SelectableTcpChannel;
+import util.TcpChannel;
 import util.SecurityUtil;
+import util.SwitchableChannel;
 import controller.CloudController;
 import controller.info.ClientInfo;
+import controller.info.LatencyTracker;
 import controller.info.NodeInfo;
+import controller.info.OperatorStatistics;
+import controller.info.RateLimiter;
+import controller.info.ResultCache;
+import model.ChannelStatistics;
+import model.ControllerUtilization;
+import model.OperatorThroughput;
 
 public class ClientCommunicationThread extends Thread {
 
+	/** number of recent latencies of an operator needed before requests are hedged */
+	private static final int HEDGE_MIN_SAMPLES = 20;
+	/** number of other nodes an operation is retried on if a node cannot be reached */
+	private static final int MAX_FAILOVERS = 2;
+	/** first bytes of a request to resume a session with a ticket */
+	private static final byte[] RESUME = "!resume ".getBytes();
+	/** answer to a client which cannot open a session, because there are too many */
+	private static final String OVERLOADED = "!overloaded";
+
 	private ServerSocket serverSocket;
 	
 	private ExecutorService pool;
 	private Config controllerConfig;
 	private Config userConfig;
 	private CloudController cloudController;
-	private Mac hMac;
+	private MacPool macPool;
 	private MyShell shell;
 	
 	private Map<String, ClientInfo> clientInfos;
-	private CopyOnWriteArrayList<Channel> activeChannels;
-	private ConcurrentHashMap<Character, Long> usageOfOperators = new ConcurrentHashMap<>();
+	private CopyOnWriteArrayList<ClientConnectionThread> activeConnections;
+	private ChannelMetrics channelMetrics = new ChannelMetrics();
+	private OperatorStatistics operatorStatistics = new OperatorStatistics();
+	private ResultCache resultCache;
+	private RequestCoalescer<String> operationCoalescer = new RequestCoalescer<>();
+	private RequestCoalescer<NodeResult> termCoalescer = new RequestCoalescer<>();
+	private AdmissionController admissionController;
+	private SessionTickets sessionTickets;
+	private KeyCache keyCache = new KeyCache();
+	private LatencyTracker latencyTracker = new LatencyTracker();
+	private ScheduledExecutorService hedgePool;
+	private ExecutorService handshakePool;
+	private int hedgePercentile;
+	private long hedgeMinDelay;
+	private LongAdder hedgedRequests = new LongAdder();
+
+	private ClientEventLoop[] eventLoops;
 
 	private boolean isShutdown;
 	
-	public ClientCommunicationThread(CloudController cloudController, ServerSocket serverSocket, Config controllerConfig, Config userConfig, Mac hMac, MyShell shell) {
+	public ClientCommunicationThread(CloudController cloudController, ServerSocket serverSocket, Config controllerConfig, Config userConfig, MacPool macPool, MyShell shell) throws IOException {
 		this.cloudController = cloudController;
 		this.serverSocket = serverSocket;
-		this.pool = Executors.newCachedThreadPool();
+		this.pool = ExecutorFactory.create(controllerConfig, "controller.executor");
+		this.handshakePool = ExecutorFactory.createBounded(controllerConfig.getInt("controller.handshake.threads"),
+				controllerConfig.getInt("controller.handshake.queue"));
 		this.controllerConfig = controllerConfig;
 		this.userConfig = userConfig;
-		this.activeChannels =  new CopyOnWriteArrayList<>();
+		this.activeConnections =  new CopyOnWriteArrayList<>();
+		this.resultCache = new ResultCache(controllerConfig.getInt("controller.cache.size"));
+		this.sessionTickets = new SessionTickets(controllerConfig.getInt("controller.ticket.lifetime"),
+				controllerConfig.getInt("controller.ticket.replayCache"));
+		this.admissionController = new AdmissionController(controllerConfig.getInt("controller.maxSessions"),
+				controllerConfig.getInt("controller.maxComputes"), controllerConfig.getInt("controller.computeQueue"),
+				controllerConfig.getInt("controller.computeQueueTimeout"));
+		this.hedgePercentile = controllerConfig.getInt("controller.hedge.percentile");
+		this.hedgeMinDelay = controllerConfig.getInt("controller.hedge.minDelay") * 1000L;
+		if(hedgePercentile > 0) {
+			this.hedgePool = ExecutorFactory.createScheduled(controllerConfig.getInt("controller.hedge.threads"));
+		}
 		
-		this.hMac = hMac;
+		this.macPool = macPool;
 		this.shell = shell;
 		
+		if(controllerConfig.getString("controller.io").equals("nio")) {
+			eventLoops = new ClientEventLoop[controllerConfig.getInt("controller.nio.eventLoops")];
+			for (int i = 0; i < eventLoops.length; i++) {
+				eventLoops[i] = new ClientEventLoop("client-event-loop-" + i);
+			}
+		}
+		
 		initClientInfos();
 	}
 	
@@ -76,7 +143,15 @@ public class ClientCommunicationThread extends Thread {
 		
 		for(String key : userConfig.listKeys()) {
 			String name = key.split("\\.")[0];
-			clientInfos.put(name, new ClientInfo(name, ClientInfo.Status.OFFLINE, userConfig.getInt(name + ".credits")));
+			if(clientInfos.containsKey(name)) {
+				continue;
+			}
+			ClientInfo clientInfo = new ClientInfo(name, ClientInfo.Status.OFFLINE, userConfig.getInt(name + ".credits"));
+			if(userConfig.containsKey(name + ".rate")) {
+				clientInfo.setRateLimiter(new RateLimiter(Double.parseDouble(userConfig.getString(name + ".rate")), 
+						userConfig.getInt(name + ".burst")));
+			}
+			clientInfos.put(name, clientInfo);
 		}
 	}
 	
@@ -93,11 +168,20 @@ public class ClientCommunicationThread extends Thread {
 	}
 
 	public void run() {
+		if(eventLoops != null) {
+			runNonBlocking();
+			return;
+		}
+		
 		while (!cloudController.isStop()) {
 			try {
-				Socket socket = serverSocket.accept();
-				ClientConnectionThread clientConnectionThread = new ClientConnectionThread(controllerConfig, socket);
-				activeChannels.add(clientConnectionThread.getChannel());
+				Channel transport = accept();
+				if(!admissionController.openSession()) {
+					reject(transport);
+					continue;
+				}
+				ClientConnectionThread clientConnectionThread = new ClientConnectionThread(transport);
+				activeConnections.add(clientConnectionThread);
 				pool.execute(clientConnectionThread);
 			} catch (IOException e) {
 				break;
@@ -105,10 +189,69 @@ public class ClientCommunicationThread extends Thread {
 		}		
 	}
 	
+	/**
+	 * Accepts the next client connection with a buffered stream channel, or
+	 * with a channel on direct buffers, if the server socket has a channel.
+	 */
+	private Channel accept() throws IOException {
+		ServerSocketChannel serverSocketChannel = serverSocket.getChannel();
+		if(serverSocketChannel != null) {
+			return new NioChannel(serverSocketChannel.accept());
+		}
+		return new TcpChannel(serverSocket.accept(), true);
+	}
+	
+	/**
+	 * Accepts the clients on the channel of the server socket and spreads
+	 * them over the event loops. A thread of the pool is only used while a
+	 * received message is processed.
+	 */
+	private void runNonBlocking() {
+		ServerSocketChannel serverSocketChannel = serverSocket.getChannel();
+		for (ClientEventLoop eventLoop : eventLoops) {
+			eventLoop.start();
+		}
+		
+		int next = 0;
+		while (!cloudController.isStop()) {
+			try {
+				SocketChannel socketChannel = serverSocketChannel.accept();
+				if(!admissionController.openSession()) {
+					reject(new NioChannel(socketChannel));
+					continue;
+				}
+				SelectableTcpChannel selectableChannel = new SelectableTcpChannel(socketChannel, true);
+				ClientConnectionThread clientConnectionThread = new ClientConnectionThread(selectableChannel);
+				selectableChannel.setMessageListener(clientConnectionThread);
+				activeConnections.add(clientConnectionThread);
+				eventLoops[next++ % eventLoops.length].register(selectableChannel);
+			} catch (IOException e) {
+				break;
+			} 
+		}
+	}
+	
+	/**
+	 * Tells the client that the controller is overloaded and closes the
+	 * connection, before the client started its handshake.
+	 */
+	private void reject(Channel transport) {
+		try {
+			Channel channel = new Base64Channel(transport);
+			channel.sendMessage(OVERLOADED);
+			channel.flush();
+		} catch (NotConnectedException e) {
+			// the client is gone already
+		} finally {
+			transport.close();
+		}
+	}
+	
 	public void shutdown() {
 		isShutdown = true;
-		for (Channel channel : activeChannels) {
-			if(channel != null && channel.isConnected())
+		for (ClientConnectionThread connection : activeConnections) {
+			Channel channel = connection.getChannel();
+			if(channel.isConnected())
 			{
 				channel.close();			
 			}
@@ -119,67 +262,196 @@ public class ClientCommunicationThread extends Thread {
 		if (pool != null) {
 			pool.shutdownNow();
 		}
+		if (hedgePool != null) {
+			hedgePool.shutdownNow();
+		}
+		handshakePool.shutdownNow();
+		if (eventLoops != null) {
+			for (ClientEventLoop eventLoop : eventLoops) {
+				eventLoop.shutdown();
+			}
+		}
 	}
 	
-	class ClientConnectionThread implements Runnable {
+	class ClientConnectionThread implements Runnable, SelectableTcpChannel.MessageListener {
 		private final String B64 = "a-zA-Z0-9/+";
 		
 		private Channel channel;
 		private String loggedInUser;
 		
-		public ClientConnectionThread(Config controllerConfig, Socket socket) { 
-			this.channel = new Base64Channel(socket);
+		private String authenticatingUser;
+		private byte[] controllerChallenge;
+		private boolean authenticated;
+		private volatile boolean finished;
+		private AtomicBoolean scheduled = new AtomicBoolean(false);
+		
+		private ChannelMetrics metrics = new ChannelMetrics(channelMetrics);
+		
+		/**
+		 * @param transport the line channel of the accepted connection
+		 */
+		public ClientConnectionThread(Channel transport) { 
+			this.channel = new Base64Channel(MeteredChannel.wrap(transport, metrics));
 		}	
 
 		@Override
 		public void run() {
-			String keysDir = controllerConfig.getString("keys.dir");
-			File privateKey = new File(controllerConfig.getString("key"));
-			
-			boolean authenticated = processAuthentication(privateKey, keysDir);
-			if(!authenticated)
-			{
-				shell.writeLine("Error: an authentication failed");
-				if(channel.isConnected())
-					channel.close();
-				return;
+			try {
+				while (channel.isConnected() && processNextMessage()) { }
+			} finally {
+				finish();
+			}
+		}
+		
+		/**
+		 * Schedules the processing of the received messages. Messages of a
+		 * client which is not authenticated yet are processed on the
+		 * handshake pool, all others on the session pool. The messages of one
+		 * client are processed one after the other.
+		 */
+		@Override
+		public void messageAvailable(final SelectableTcpChannel selectableChannel) {
+			if(scheduled.compareAndSet(false, true)) {
+				final ExecutorService stage = currentStage();
+				try {
+					stage.execute(new Runnable() {
+						@Override
+						public void run() {
+							boolean completed = false;
+							try {
+								while (!finished && selectableChannel.hasMessage() && stage == currentStage()) {
+									if(!processNextMessage()) {
+										finish();
+									}
+								}
+								// the answers to all processed messages go out in one write
+								flush();
+								completed = true;
+							} finally {
+								if(!completed) {
+									finish();
+								}
+								scheduled.set(false);
+							}
+							// messages received meanwhile, or the first ones after the handshake
+							if(!finished && selectableChannel.hasMessage()) {
+								messageAvailable(selectableChannel);
+							}
+						}
+					});
+				} catch (RejectedExecutionException e) {
+					scheduled.set(false);
+					if(stage == handshakePool) {
+						// too many logins at once, the client is turned away
+						finish();
+					}
+				}
+			}
+		}
+		
+		private void flush() {
+			if(!finished) {
+				try {
+					channel.flush();
+				} catch (NotConnectedException e) {
+					finish();
+				}
+			}
+		}
+		
+		private ExecutorService currentStage() {
+			return authenticated ? pool : handshakePool;
+		}
+		
+		/**
+		 * Reads and processes the next message of the client.
+		 * 
+		 * @return false, if the connection has to be closed
+		 */
+		private boolean processNextMessage() {
+			if(!authenticated) {
+				boolean ok;
+				try {
+					byte[] message = channel.readByteMessage();
+					ok = message != null && (eventLoops != null ? processHandshake(message) : processHandshakeOnPool(message));
+				} catch (IOException | NotConnectedException e) {
+					ok = false;
+				}
+				if(!ok) {
+					shell.writeLine("Error: an authentication failed");
+				}
+				return ok;
 			}
 			
 			try {
-				String request;
-				while (channel.isConnected() && (request = channel.readMessage()) != null) {		
-					if(request.startsWith("logout")) {
-						getChannel().sendMessage(logout());
-					} else if(request.startsWith("credits")) {
-						getChannel().sendMessage(credits());
-					} else if(request.startsWith("buy")) {
-						getChannel().sendMessage(buy(request));
-					} else if(request.startsWith("list")) {
-						getChannel().sendMessage(list());
-					} else if(request.startsWith("compute")) {
-						getChannel().sendMessage(compute(request));
-					} else {
-						getChannel().sendMessage("command not found");
-					}	
+				String request = channel.readMessage();
+				if(request == null) {
+					return false;
 				}
+				
+				ClientCommand command = ClientCommand.lookup(request);
+				if(command == null) {
+					getChannel().sendMessage("command not found");
+					return true;
+				}
+				switch (command) {
+				case COMPUTE:
+					getChannel().sendMessage(computeAdmitted(request, command.argumentOffset(request)));
+					break;
+				case CREDITS:
+					getChannel().sendMessage(credits());
+					break;
+				case BUY:
+					getChannel().sendMessage(buy(request, command.argumentOffset(request)));
+					break;
+				case LIST:
+					getChannel().sendMessage(list());
+					break;
+				case LOGOUT:
+					getChannel().sendMessage(logout());
+					break;
+				case TICKET:
+					getChannel().sendMessage(ticket());
+					break;
+				}
+				return true;
+			} catch (NumberFormatException e) {
+				// buy with an amount which is no number
+				return sendError("Error: invalid request");
 			} catch (IOException e) { 
 				if(!isShutdown)
 					shell.writeLine("Error: while reading from client");
 			} catch (NotConnectedException e) {
 				e.printStackTrace();
 			} 
-			finally {
-				if (getChannel() != null) {
-					activeChannels.remove(getChannel());
-					if(getChannel().isConnected()) {
-						getChannel().close();
-					}
-				}
-				if(loggedInUser != null) {
-					clientInfos.get(loggedInUser).setStatus(ClientInfo.Status.OFFLINE);					
-				}
+			return false;
+		}
+		
+		/**
+		 * @return false, if the error cannot be sent
+		 */
+		private boolean sendError(String error) {
+			try {
+				getChannel().sendMessage(error);
+				return true;
+			} catch (NotConnectedException e) {
+				return false;
+			}
+		}
+		
+		private void finish() {
+			if(finished) {
+				return;
+			}
+			finished = true;
+			admissionController.closeSession();
+			activeConnections.remove(this);
+			if(getChannel().isConnected()) {
+				getChannel().close();
+			}
+			if(loggedInUser != null) {
+				clientInfos.get(loggedInUser).setStatus(ClientInfo.Status.OFFLINE);					
 			}
-			
 		}
 		
 		public String logout() {		
@@ -207,116 +479,322 @@ public class ClientCommunicationThread extends Thread {
 			return "You have " +  clientInfos.get(loggedInUser).getCredits() + " credits left."; 	
 		}		
 		
-		public String buy(String request) {
+		public String buy(String request, int offset) {
 			if (loggedInUser == null) {
 				return "You have to login first!";
 			}
-			String[] array = request.split(" ");
-			clientInfos.get(loggedInUser).addCredits(Long.parseLong(array[1]));
+			clientInfos.get(loggedInUser).addCredits(Long.parseLong(request.substring(offset).trim()));
 			
 			return "You now have " + clientInfos.get(loggedInUser).getCredits() + " credits."; 	
 		}	
 		
-		public String compute(String request) {
+		/**
+		 * Computes the term, if the controller is not overloaded.
+		 */
+		private String computeAdmitted(String request, int offset) {
 			if (loggedInUser == null) {
 				return "You have to login first!";
 			}
-			request = request.replaceAll("compute", "").trim();
-			String[] splitTerm = request.split(" ");
-						
-			String operators = request.replaceAll("\\d", "").replaceAll("\\s", "");
-			updateUsageOfOperators(operators);
-			String supportedOperators = cloudController.listOfOperators();
-			
+			// throttled requests are answered at once instead of waiting for a compute slot
+			RateLimiter rateLimiter = clientInfos.get(loggedInUser).getRateLimiter();
+			if(rateLimiter != null) {
+				long wait = rateLimiter.tryAcquire();
+				if(wait > 0) {
+					return "Error: rate limit exceeded, try again in " + wait + " ms";
+				}
+			}
+			if(!admissionController.startCompute()) {
+				return "Error: the cloud controller is overloaded, please try again later";
+			}
+			try {
+				return compute(request, offset);
+			} finally {
+				admissionController.finishCompute();
+			}
+		}
+		
+		public String compute(String request, int offset) {
+			if (loggedInUser == null) {
+				return "You have to login first!";
+			}
+			ComputeTerm term = ComputeTerm.parse(request, offset);
+			if(term == null) {
+				return "Error: invalid term";
+			}
+			String operators = term.getOperators();
+			operatorStatistics.record(operators);
 			for (int i = 0; i < operators.length(); i++) {
-				if(! supportedOperators.contains("" + operators.charAt(i))) {
+				if(! cloudController.isOperatorSupported(operators.charAt(i))) {
 					return "Error: Operation " + operators.charAt(i) + " is not supported.";
 				}
 			}
 			
-			if(clientInfos.get(loggedInUser).getCredits() < operators.length() * 50) {
+			// reserve the maximal price up front, so concurrent sessions of the user cannot overspend
+			ClientInfo info = clientInfos.get(loggedInUser);
+			long reservedCredits = operators.length() * 50;
+			if(!info.reserveCredits(reservedCredits)) {
 				return "Error: not enough credits"; 
 			}
 
-			String value1 = splitTerm[0];
+			String value1 = term.getOperand(0);
 			int countOfOperation = 0;
-			for (int i = 1; i < splitTerm.length; i += 2) {				
-				Character operation = splitTerm[i].charAt(0);
-				String value2 = splitTerm[i+1];
-				
-				NodeInfo n = cloudController.getNodeWithLeastUsage(operation);
-				PrintWriter nodeWriter;
-				BufferedReader nodeReader;
+			try {
+				// ship the whole term in one message if a single node supports all of its operators
+				NodeInfo n = operators.length() > 1 ? cloudController.getNodeWithAllOperations(operators) : null;
 				
+				boolean computed = false;
 				if(n != null) {
-					Socket socket = null;
-					
 					try {
-						socket = new Socket(n.getIp(), n.getTcpPort());
-						socket.setSoTimeout(cloudController.getTimeOut());
-						
-						nodeReader = new BufferedReader(new InputStreamReader(socket.getInputStream()));
-						nodeWriter = new PrintWriter(socket.getOutputStream(), true);	
+						NodeResult result = computeShared(n, term.getTerm());
+						value1 = result.getValue();
+						countOfOperation = result.getOperationCount();
+						computed = true;
+					} catch (IOException e) {
+						// the node failed, the operations are computed one by one on the other nodes
+					}
+				}
+				if(!computed) {
+					for (int i = 0; i < term.getOperationCount(); i++) {
+						char operation = term.getOperator(i);
+						String value2 = term.getOperand(i + 1);
 						
-						String computeTask = "!compute " + value1 + " " + operation + " " + value2;
-						hMac.update(computeTask.getBytes());						
-						byte[] hash = hMac.doFinal();
+						// repeated operations are answered from the cache, but charged all the same
+						String operationTerm = ResultCache.key(value1, operation, value2);
+						String cached = resultCache.get(operationTerm);
+						if(cached != null) {
+							value1 = cached;
+							countOfOperation++;
+							continue;
+						}
 						
-						byte[] encodeHash = Base64.encode(hash);
-	
-						nodeWriter.println(new String(encodeHash) + " " +computeTask);	
-						value1 = nodeReader.readLine();							
+						value1 = computeShared(operation, operationTerm);
+						if(value1 == null) {
+							info.releaseCredits(reservedCredits);
+							return "Error: cannot be calculated";
+						}
+						countOfOperation++;
 						
 						if(value1.startsWith("Error")) {
 							break;
-						} else if(value1.contains("!tampered")) {
-							int index = value1.indexOf("!compute");				
-							String term = value1.substring(index, value1.length()).trim();
-							value1 = "Term " + term + " tampered during the transmission!";
-							break;
-						} else if(value1.contains("!result")) {						
-							int index = value1.indexOf("!result");
-							String strEncodeHash = value1.substring(0, index).trim();		
-							String term = value1.substring(index, value1.length()).trim();
-							
-							if(verifyHash(strEncodeHash, term)) {
-								value1 = term.replaceAll("!result", "").trim();
-								n.addUsage(value1.length() * 50);
-								countOfOperation++;
-							} else {
-								value1 = "Result Term " + term.trim() + " tampered during the transmission!";
-								break;
-							}
-						} else {
-							value1 = "Unknown command received: " + value1;
-							break;
-						}
-					} catch (Exception e) {
-						return "Error: Node Timeout";
-					} finally {
-						if (socket != null && !socket.isClosed()) {
-							try {
-								socket.close();
-							} catch (IOException e) { }
 						}
+						resultCache.put(operationTerm, value1);
 					}
-				} else {
-					return "Error: cannot be calculated";
 				}
+			} catch (ComputationException e) {
+				value1 = e.getMessage();
+			} catch (Exception e) {
+				info.releaseCredits(reservedCredits);
+				return "Error: Node Timeout";
 			}
 			
-			clientInfos.get(loggedInUser).minusCredits(countOfOperation * 50);
-			cloudController.checkCredits(clientInfos.get(loggedInUser).getCredits(), clientInfos.get(loggedInUser).getName());
+			info.commitCredits(reservedCredits, countOfOperation * 50);
+			cloudController.checkCredits(info.getCredits(), info.getName());
 			return value1;
 		}
 		
+		/**
+		 * Computes the term on the given node. Sessions asking for the same
+		 * term at the same time share one node request.
+		 */
+		private NodeResult computeShared(final NodeInfo n, final String term) throws ComputationException, IOException {
+			return termCoalescer.execute(term, new Callable<NodeResult>() {
+				@Override
+				public NodeResult call() throws Exception {
+					return computeOnNode(n, term, null);
+				}
+			});
+		}
+		
+		/**
+		 * Computes a single operation on a node selected by the load balancer.
+		 * Sessions asking for the same operation at the same time share one
+		 * node request.
+		 * 
+		 * @return the result or null, if no node supports the operation
+		 */
+		private String computeShared(final char operation, final String term) throws ComputationException, IOException {
+			return operationCoalescer.execute(term, new Callable<String>() {
+				@Override
+				public String call() throws Exception {
+					return computeWithFailover(operation, term);
+				}
+			});
+		}
+		
+		/**
+		 * Computes a single operation on a node selected by the load balancer.
+		 * If the node cannot be reached, the operation is retried on another
+		 * node supporting the operator.
+		 * 
+		 * @return the result or null, if no node supports the operation
+		 */
+		private String computeWithFailover(char operation, String term) throws ComputationException, IOException {
+			NodeInfo n = cloudController.selectNode(operation);
+			List<NodeInfo> failedNodes = new ArrayList<>();
+			while (n != null) {
+				try {
+					return computeHedged(n, operation, term);
+				} catch (IOException e) {
+					failedNodes.add(n);
+					if(failedNodes.size() > MAX_FAILOVERS) {
+						throw e;
+					}
+					n = cloudController.selectAlternativeNode(operation, failedNodes);
+					if(n == null) {
+						throw e;
+					}
+				}
+			}
+			return null;
+		}
+		
+		/**
+		 * Computes a single operation on the given node. If the node did not
+		 * answer within the configured percentile of the recent latencies of
+		 * the operator, the operation is also sent to the next best node from
+		 * the hedge pool. The first valid result is taken and the other
+		 * request is aborted.
+		 */
+		private String computeHedged(final NodeInfo primary, final char operation, final String term) throws ComputationException, IOException {
+			long delay = -1;
+			if(hedgePool != null && latencyTracker.getSampleCount(operation) >= HEDGE_MIN_SAMPLES) {
+				delay = Math.max(latencyTracker.getPercentile(operation, hedgePercentile), hedgeMinDelay);
+			}
+			if(delay < 0) {
+				return computeTimed(primary, operation, term, null, true);
+			}
+			
+			NodeRequest primaryRequest = new NodeRequest();
+			final NodeRequest hedgeRequest = primaryRequest.pair();
+			ScheduledFuture<String> hedge;
+			try {
+				hedge = hedgePool.schedule(new Callable<String>() {
+					@Override
+					public String call() throws Exception {
+						NodeInfo secondary = cloudController.selectAlternativeNode(operation, Collections.singletonList(primary));
+						if(secondary == null || hedgeRequest.isAborted()) {
+							return null;
+						}
+						hedgedRequests.increment();
+						return computeTimed(secondary, operation, term, hedgeRequest, false);
+					}
+				}, delay, TimeUnit.MICROSECONDS);
+			} catch (RejectedExecutionException e) {
+				return computeTimed(primary, operation, term, null, true);
+			}
+			
+			try {
+				String result = computeTimed(primary, operation, term, primaryRequest, true);
+				hedge.cancel(false);
+				return result;
+			} catch (ComputationException | IOException e) {
+				// the hedge either has won, or is the remaining chance for a result
+				if(hedge.cancel(false)) {
+					throw e;
+				}
+				String result;
+				try {
+					result = hedge.get();
+				} catch (ExecutionException | CancellationException hedgeFailure) {
+					// both failed, the failure of the primary node is reported
+					throw e;
+				} catch (InterruptedException interrupted) {
+					Thread.currentThread().interrupt();
+					throw new IOException("interrupted while waiting for the node");
+				}
+				if(result == null) {
+					throw e;
+				}
+				return result;
+			}
+		}
+		
+		/**
+		 * Computes a single operation on the given node and records the latency.
+		 * The primary request is recorded also if it failed or lost against
+		 * its hedge, with at most the timeout, so slow nodes keep the percentile
+		 * up. A hedge is only recorded if it was not aborted by the primary.
+		 * 
+		 * @param request the handle of a hedged request, or null
+		 * @param primary false for the hedge of a request
+		 */
+		private String computeTimed(NodeInfo n, char operation, String term, NodeRequest request, boolean primary) throws ComputationException, IOException {
+			long start = System.nanoTime();
+			try {
+				return computeOnNode(n, term, request).getValue();
+			} finally {
+				if(primary || !request.isAborted()) {
+					long latency = (System.nanoTime() - start) / 1000;
+					latencyTracker.record(operation, Math.min(latency, cloudController.getTimeOut() * 1000L));
+				}
+			}
+		}
+		
+		/**
+		 * Sends the signed term to the given node and returns the verified result.
+		 * 
+		 * @param n the node to compute the term
+		 * @param term the term, either a single operation or a chain of operations
+		 * @param request the handle of a hedged request, or null
+		 * @return the result of the node
+		 * @throws ComputationException if the node did not return a valid result
+		 * @throws IOException if the node cannot be reached or does not answer in time
+		 */
+		private NodeResult computeOnNode(NodeInfo n, String term, NodeRequest request) throws ComputationException, IOException {
+			String computeTask = "!compute " + term;
+			byte[] hash = macPool.sign(computeTask.getBytes());
+			
+			byte[] encodeHash = Base64.encode(hash);
+
+			String response;
+			try {
+				response = cloudController.getConnectionPool(n).send(new String(encodeHash) + " " + computeTask, request);
+			} catch (NodeConnectionPool.PoolUnavailableException e) {
+				// the node is busy, but not failing
+				throw e;
+			} catch (IOException e) {
+				// only a lost connection or timeout counts against the node, it answers invalid terms with an error
+				if(request == null || !request.isAborted()) {
+					cloudController.reportNodeFailure(n);
+				}
+				throw e;
+			}
+			cloudController.reportNodeSuccess(n);
+			
+			if(response.startsWith("Error")) {
+				throw new ComputationException(response);
+			} else if(response.contains("!tampered")) {
+				int index = response.indexOf("!compute");				
+				String tamperedTerm = response.substring(index, response.length()).trim();
+				throw new ComputationException("Term " + tamperedTerm + " tampered during the transmission!");
+			} else if(response.contains("!result")) {						
+				int index = response.indexOf("!result");
+				String strEncodeHash = response.substring(0, index).trim();		
+				String resultTerm = response.substring(index, response.length()).trim();
+				
+				if(verifyHash(strEncodeHash, resultTerm)) {
+					NodeResult result = NodeResult.parse(resultTerm);
+					if(result == null) {
+						throw new ComputationException("Unknown command received: " + response);
+					}
+					if(request != null && !request.win()) {
+						throw new IOException("the hedged request has already been answered");
+					}
+					// like every single operation, the node is charged for each intermediate result
+					cloudController.addUsage(n, result.getResultLength() * 50);
+					return result;
+				} else {
+					throw new ComputationException("Result Term " + resultTerm + " tampered during the transmission!");
+				}
+			} else {
+				throw new ComputationException("Unknown command received: " + response);
+			}
+		}
+		
 		private boolean verifyHash(String encodeHash, String term) {
 			byte[] receivedHash = Base64.decode(encodeHash);
 			
-			hMac.update(term.getBytes());						
-			byte[] computedHash = hMac.doFinal();
-
-			return MessageDigest.isEqual(computedHash, receivedHash);
+			return macPool.verify(term.getBytes(), receivedHash);
 		}
 		
 		public String list() {
@@ -327,22 +805,72 @@ public class ClientCommunicationThread extends Thread {
 			return operators.isEmpty() ? "no operations support currently" : operators;
 		}
 
+		/**
+		 * Issues a session ticket, with which the client can open its next
+		 * session without the RSA handshake.
+		 */
+		public String ticket() {
+			if (loggedInUser == null) {
+				return "You have to login first!";
+			}
+			try {
+				SessionTickets.Ticket ticket = sessionTickets.issue(loggedInUser);
+				return "!ticket " + new String(Base64.encode(ticket.getEncrypted())) + " " + new String(Base64.encode(ticket.getSecret()));
+			} catch (GeneralSecurityException e) {
+				return "Error: cannot issue a ticket";
+			}
+		}
+
 		public Channel getChannel() {
 			return channel;
 		}
 		
-		private boolean processAuthentication(File privateKeyFile, String keysDir)
+		private boolean processHandshake(byte[] message)
+		{
+			return controllerChallenge == null ? processAuthentication(message) : processChallengeAnswer(message);
+		}
+		
+		/**
+		 * Runs the handshake step on the handshake pool and waits for it, so
+		 * the cryptographic work of all logins together is bounded by the
+		 * size of the pool.
+		 */
+		private boolean processHandshakeOnPool(final byte[] message)
+		{
+			try {
+				return handshakePool.submit(new Callable<Boolean>() {
+					@Override
+					public Boolean call() {
+						return processHandshake(message);
+					}
+				}).get();
+			} catch (RejectedExecutionException e) {
+				// too many logins at once, the client is turned away
+				channel.close();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (ExecutionException e) {
+				channel.close();
+			}
+			return false;
+		}
+		
+		private boolean processAuthentication(byte[] encryptedMessage)
 		{
+			String keysDir = controllerConfig.getString("keys.dir");
+			File privateKeyFile = new File(controllerConfig.getString("key"));
+			
 			try {
-				//Read message from client
-				byte[] encryptedMessage = channel.readByteMessage();
+				if(startsWith(encryptedMessage, RESUME)) {
+					return processResumption(new String(encryptedMessage));
+				}
 				
-				PrivateKey privateKey = Keys.readPrivatePEM(privateKeyFile);
+				PrivateKey privateKey = keyCache.getPrivateKey(privateKeyFile);
 				Cipher privateCipher = Cipher.getInstance("RSA/NONE/OAEPWithSHA256AndMGF1Padding");
 				privateCipher.init(Cipher.DECRYPT_MODE, privateKey);
 				byte[] decryptedMessage = privateCipher.doFinal(encryptedMessage);
 				String message = new String(decryptedMessage);
-				assert message.matches("!authenticate \\w+ ["+B64+"]{43}=") : "1st message";
+				assert message.matches("!authenticate \\w+ ["+B64+"]{43}=( binary)?( gcm)?") : "1st message";
 				String[] messageParts = message.split(" ");
 				
 				//Prepare answer
@@ -359,19 +887,121 @@ public class ClientCommunicationThread extends Thread {
 				byte[] controllerChallenge = SecurityUtil.createBase64Challenge();
 				SecretKey key = SecurityUtil.createAESKey();
 				byte[] ivParam = SecurityUtil.createIVParam();
+				boolean binary = acceptsFrames(messageParts, 3);
+				boolean gcm = hasOption(messageParts, 3, GcmSecureChannel.NEGOTIATION_TOKEN);
 				String answer = String.format("!ok %s %s %s %s", clientChallenge, new String(controllerChallenge),
 						new String(Base64.encode(key.getEncoded())), new String(Base64.encode(ivParam)));
 				
-				//Encrypt message using public key of host and send it
-				PublicKey publicKey = Keys.readPublicPEM(publicKeyOfUser);
+				//Encrypt message using public key of host
+				PublicKey publicKey = keyCache.getPublicKey(publicKeyOfUser);
 				Cipher publicCipher = Cipher.getInstance("RSA/NONE/OAEPWithSHA256AndMGF1Padding");
 				publicCipher.init(Cipher.ENCRYPT_MODE, publicKey);
-				byte[] encryptedAnswer = publicCipher.doFinal(answer.getBytes());
+				byte[] encryptedAnswer = publicCipher.doFinal((answer + acceptedOptions(binary, gcm)).getBytes());
+				//Switch before sending, the client may send frames as soon as it has the answer
+				Channel secureChannel = createSecureChannel(binary, gcm, key, ivParam);
 				channel.sendMessage(encryptedAnswer);
-				//Create secure channel
-				channel = new SecureChannel((Base64Channel) channel, key, ivParam);
-				//Read controller challenge and check it
-				byte[] controllerChallengeAnswer = channel.readByteMessage();
+				channel.flush();
+				//Use secure channel, the client answers with the controller challenge
+				channel = secureChannel;
+				this.authenticatingUser = username;
+				this.controllerChallenge = controllerChallenge;
+			} catch (Exception e) {
+				channel.close();
+				return false;
+			}
+			
+			return true;
+		}
+		
+		/**
+		 * Opens a session with the keys derived from the secret of a session
+		 * ticket. The client answers with the controller challenge, as after
+		 * the RSA handshake.
+		 */
+		private boolean processResumption(String message) throws IOException, NotConnectedException, GeneralSecurityException
+		{
+			String[] messageParts = message.split(" ");
+			SessionTickets.Ticket ticket = messageParts.length >= 3
+					? sessionTickets.redeem(Base64.decode(messageParts[1])) : null;
+			if(ticket == null || !clientInfos.containsKey(ticket.getUsername()))
+			{
+				channel.sendMessage("!denied");
+				channel.close();
+				return false;
+			}
+			
+			byte[] clientNonce = messageParts[2].getBytes();
+			boolean binary = acceptsFrames(messageParts, 3);
+			boolean gcm = hasOption(messageParts, 3, GcmSecureChannel.NEGOTIATION_TOKEN);
+			byte[] controllerChallenge = SecurityUtil.createBase64Challenge();
+			byte[] key = SecurityUtil.deriveKeyMaterial(ticket.getSecret(), "key", clientNonce, controllerChallenge);
+			byte[] ivParam = Arrays.copyOf(SecurityUtil.deriveKeyMaterial(ticket.getSecret(), "iv", clientNonce, controllerChallenge), 16);
+			
+			Channel secureChannel = createSecureChannel(binary, gcm, new SecretKeySpec(key, "AES"), ivParam);
+			channel.sendMessage("!resumed " + new String(controllerChallenge) + acceptedOptions(binary, gcm));
+			channel.flush();
+			channel = secureChannel;
+			this.authenticatingUser = ticket.getUsername();
+			this.controllerChallenge = controllerChallenge;
+			return true;
+		}
+		
+		/**
+		 * @return true, if the client asked for binary frames and the
+		 *         connection can switch to them
+		 */
+		private boolean acceptsFrames(String[] messageParts, int firstOption)
+		{
+			return hasOption(messageParts, firstOption, FramedChannel.NEGOTIATION_TOKEN) && channel instanceof SwitchableChannel;
+		}
+		
+		private boolean hasOption(String[] messageParts, int firstOption, String option)
+		{
+			for (int i = firstOption; i < messageParts.length; i++) {
+				if(messageParts[i].equals(option))
+					return true;
+			}
+			return false;
+		}
+		
+		/**
+		 * @return the options appended to the answer, which tell the client
+		 *         the accepted options
+		 */
+		private String acceptedOptions(boolean binary, boolean gcm)
+		{
+			return (binary ? " " + FramedChannel.NEGOTIATION_TOKEN : "") + (gcm ? " " + GcmSecureChannel.NEGOTIATION_TOKEN : "");
+		}
+		
+		/**
+		 * Creates the channel for the encrypted messages: AES-GCM or AES-CTR,
+		 * over binary frames or Base64 encoded lines. Switching to frames
+		 * takes effect for the next received message.
+		 */
+		private Channel createSecureChannel(boolean binary, boolean gcm, SecretKey key, byte[] ivParam) throws IOException, GeneralSecurityException
+		{
+			Channel transport = binary ? ((SwitchableChannel) channel).switchToFrames() : channel;
+			if(gcm)
+				return new GcmSecureChannel(transport, key, ivParam, false);
+			return new SecureChannel(transport, key, ivParam);
+		}
+		
+		private boolean startsWith(byte[] message, byte[] prefix) {
+			if(message == null || message.length < prefix.length) {
+				return false;
+			}
+			for (int i = 0; i < prefix.length; i++) {
+				if(message[i] != prefix[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+		
+		private boolean processChallengeAnswer(byte[] controllerChallengeAnswer)
+		{
+			try {
+				//Check the controller challenge
 				if(!Arrays.equals(controllerChallengeAnswer, controllerChallenge))
 				{
 					channel.close();
@@ -379,14 +1009,14 @@ public class ClientCommunicationThread extends Thread {
 				}
 				else //Login user
 				{
-					loggedInUser = username;
+					authenticated = true;
+					loggedInUser = authenticatingUser;
 					ClientInfo info = clientInfos.get(loggedInUser);
 					synchronized(info)
 					{
 						info.setStatus(ClientInfo.Status.ONLINE);
 						info.setCurrentLogins(info.getCurrentLogins() + 1);
 					}
-					
 				}
 			} catch (Exception e) {
 				channel.close();
@@ -395,24 +1025,79 @@ public class ClientCommunicationThread extends Thread {
 			
 			return true;
 		}
-		
-		private void updateUsageOfOperators(String operators){
-			for(int i = 0; i<operators.length(); i++){
-				char akt = operators.charAt(i);
-				if(usageOfOperators.containsKey(akt)){
-					long newStat = usageOfOperators.get(akt)+1;
-					usageOfOperators.put(akt, newStat);
-				} else {
-					usageOfOperators.put(akt, 1L);
-				}
-			}
+	}
+
+	/**
+	 * Throws the cause of a failed node request.
+	 * 
+	 * @return never returns normally, declared to be used in throw statements
+	 */
+	static IOException rethrowCause(ExecutionException e) throws ComputationException, IOException {
+		Throwable cause = e.getCause();
+		if(cause instanceof ComputationException) {
+			throw (ComputationException) cause;
+		} else if(cause instanceof IOException) {
+			throw (IOException) cause;
+		} else if(cause instanceof RuntimeException) {
+			throw (RuntimeException) cause;
+		}
+		throw new IOException(cause);
+	}
+
+	/**
+	 * Signals that a node did not return a valid result. The message is sent to the client.
+	 */
+	static class ComputationException extends Exception {
+		private static final long serialVersionUID = -4718937408517470253L;
+
+		public ComputationException(String message) {
+			super(message);
 		}
-		
 	}
 
+	/**
+	 * @return the traffic of all client connections since the start,
+	 *         followed by the traffic of every open connection
+	 */
+	public List<ChannelStatistics> getChannelStatistics() {
+		List<ChannelStatistics> statistics = new ArrayList<>();
+		statistics.add(toStatistics("total", channelMetrics));
+		for (ClientConnectionThread connection : activeConnections) {
+			String user = connection.loggedInUser;
+			statistics.add(toStatistics(user != null ? user : "(not logged in)", connection.metrics));
+		}
+		return statistics;
+	}
+	
+	private static ChannelStatistics toStatistics(String name, ChannelMetrics metrics) {
+		return new ChannelStatistics(name, metrics.getBytesSent(), metrics.getBytesReceived(),
+				metrics.getMessagesSent(), metrics.getMessagesReceived(),
+				metrics.getReadWait().getPercentile(50), metrics.getReadWait().getPercentile(99),
+				metrics.getSendLatency().getPercentile(50), metrics.getSendLatency().getPercentile(99));
+	}
+	
 	public LinkedHashMap<Character, Long> getUsageOfOperators() {
-		LinkedHashMap<Character, Long> help = new LinkedHashMap<Character, Long>(usageOfOperators);
-		return help;
+		return operatorStatistics.getTotals();
+	}
+
+	public long getCoalescedRequests() {
+		return operationCoalescer.getCoalescedCount() + termCoalescer.getCoalescedCount();
+	}
+
+	public ControllerUtilization getUtilization() {
+		return admissionController.getUtilization();
+	}
+
+	public long getHedgedRequests() {
+		return hedgedRequests.sum();
+	}
+
+	public ResultCache getResultCache() {
+		return resultCache;
+	}
+
+	public List<OperatorThroughput> getOperatorThroughput() {
+		return operatorStatistics.getThroughput();
 	}
 }
 
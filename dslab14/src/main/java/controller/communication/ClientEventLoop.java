@@ -0,0 +1,97 @@
+package controller.communication;
+
+import java.io.IOException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import util.SelectableTcpChannel;
+
+/**
+ * Selector loop which serves the sockets of many idle client connections
+ * with a single thread. Received messages are handed over to the
+ * {@link SelectableTcpChannel.MessageListener} of each channel. A channel
+ * which fails is closed, the loop keeps serving the other channels.
+ */
+public class ClientEventLoop extends Thread {
+
+	private Selector selector;
+	private ConcurrentLinkedQueue<SelectableTcpChannel> newChannels = new ConcurrentLinkedQueue<>();
+	private volatile boolean stop = false;
+
+	public ClientEventLoop(String name) throws IOException {
+		super(name);
+		this.selector = Selector.open();
+	}
+
+	/**
+	 * Adds the channel to this loop. May be called from any thread.
+	 */
+	public void register(SelectableTcpChannel channel) {
+		newChannels.add(channel);
+		selector.wakeup();
+	}
+
+	public void run() {
+		try {
+			while (!stop) {
+				selector.select();
+				registerNewChannels();
+
+				Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+				while (keys.hasNext()) {
+					SelectionKey key = keys.next();
+					keys.remove();
+					SelectableTcpChannel channel = (SelectableTcpChannel) key.attachment();
+
+					try {
+						if(key.isValid() && key.isReadable()) {
+							channel.onReadable();
+						}
+						if(key.isValid() && key.isWritable()) {
+							channel.onWritable();
+						}
+					} catch (RuntimeException e) {
+						// e.g. the key was cancelled by another thread meanwhile
+						close(channel);
+					}
+				}
+			}
+		} catch (IOException | ClosedSelectorException e) {
+			// loop is shut down
+		} finally {
+			try {
+				selector.close();
+			} catch (IOException e) { }
+		}
+	}
+
+	private void registerNewChannels() {
+		SelectableTcpChannel channel;
+		while ((channel = newChannels.poll()) != null) {
+			try {
+				SelectionKey key = channel.getSocketChannel().register(selector, SelectionKey.OP_READ, channel);
+				channel.setSelectionKey(key);
+			} catch (IOException | RuntimeException e) {
+				close(channel);
+			}
+		}
+	}
+
+	private void close(SelectableTcpChannel channel) {
+		channel.close();
+		try {
+			// notifies the listener about the closed connection
+			channel.onReadable();
+		} catch (RuntimeException e) {
+			// the listener failed, the connection is closed all the same
+		}
+	}
+
+	public void shutdown() {
+		stop = true;
+		selector.wakeup();
+	}
+}
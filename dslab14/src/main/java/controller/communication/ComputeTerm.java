@@ -0,0 +1,155 @@
+package controller.communication;
+
+/**
+ * A mathematical term of a compute request, e.g. {@code 1 + 2 * -3}.
+ * <p/>
+ * The term is tokenized in a single pass over the request. Operands are kept
+ * as offsets into the request and only copied when a single operation has to
+ * be sent to a node.
+ */
+public class ComputeTerm {
+
+	private final String request;
+	private final int start;
+	private final int end;
+	private final int[] operandStarts;
+	private final int[] operandEnds;
+	private final String operators;
+
+	private ComputeTerm(String request, int start, int end, int[] operandStarts, int[] operandEnds, String operators) {
+		this.request = request;
+		this.start = start;
+		this.end = end;
+		this.operandStarts = operandStarts;
+		this.operandEnds = operandEnds;
+		this.operators = operators;
+	}
+
+	/**
+	 * Parses the term starting at the given offset of the request. Operands
+	 * and operators have to be separated by whitespace, operands are ints with
+	 * an optional sign.
+	 *
+	 * @param request the request line
+	 * @param offset the offset of the term in the request
+	 * @return the term or null, if the request does not contain a valid term
+	 */
+	public static ComputeTerm parse(String request, int offset) {
+		int length = request.length();
+		int tokens = 0;
+		int[] starts = new int[8];
+		int[] ends = new int[8];
+
+		int i = offset;
+		while (true) {
+			while (i < length && Character.isWhitespace(request.charAt(i))) {
+				i++;
+			}
+			if(i == length) {
+				break;
+			}
+			int tokenStart = i;
+			while (i < length && !Character.isWhitespace(request.charAt(i))) {
+				i++;
+			}
+			if(tokens == starts.length) {
+				int[] largerStarts = new int[tokens * 2];
+				int[] largerEnds = new int[tokens * 2];
+				System.arraycopy(starts, 0, largerStarts, 0, tokens);
+				System.arraycopy(ends, 0, largerEnds, 0, tokens);
+				starts = largerStarts;
+				ends = largerEnds;
+			}
+			starts[tokens] = tokenStart;
+			ends[tokens] = i;
+			tokens++;
+		}
+
+		// operand (operator operand)*
+		if(tokens % 2 == 0) {
+			return null;
+		}
+		int operations = tokens / 2;
+		int[] operandStarts = new int[operations + 1];
+		int[] operandEnds = new int[operations + 1];
+		char[] operators = new char[operations];
+		for (int t = 0; t < tokens; t++) {
+			if(t % 2 == 0) {
+				if(!isOperand(request, starts[t], ends[t])) {
+					return null;
+				}
+				operandStarts[t / 2] = starts[t];
+				operandEnds[t / 2] = ends[t];
+			} else {
+				char operator = request.charAt(starts[t]);
+				if(ends[t] - starts[t] != 1 || Character.isDigit(operator)) {
+					return null;
+				}
+				operators[t / 2] = operator;
+			}
+		}
+		return new ComputeTerm(request, starts[0], ends[tokens - 1], operandStarts, operandEnds, new String(operators));
+	}
+
+	/**
+	 * @return true, if the characters are an int the nodes can parse
+	 */
+	private static boolean isOperand(String request, int start, int end) {
+		boolean negative = request.charAt(start) == '-';
+		if(negative || request.charAt(start) == '+') {
+			start++;
+		}
+		if(start == end) {
+			return false;
+		}
+		long value = 0;
+		for (int i = start; i < end; i++) {
+			char c = request.charAt(i);
+			if(c < '0' || c > '9') {
+				return false;
+			}
+			value = value * 10 + (c - '0');
+			if(value > Integer.MAX_VALUE + 1L) {
+				return false;
+			}
+		}
+		return negative || value <= Integer.MAX_VALUE;
+	}
+
+	/**
+	 * @return the whole term without surrounding whitespace
+	 */
+	public String getTerm() {
+		return request.substring(start, end);
+	}
+
+	/**
+	 * @return the operators of the term in order of their appearance
+	 */
+	public String getOperators() {
+		return operators;
+	}
+
+	/**
+	 * @return the number of operations of the term
+	 */
+	public int getOperationCount() {
+		return operators.length();
+	}
+
+	/**
+	 * @param index the index of the operator
+	 * @return the operator
+	 */
+	public char getOperator(int index) {
+		return operators.charAt(index);
+	}
+
+	/**
+	 * @param index the index of the operand, from 0 to the number of operations
+	 * @return the operand
+	 */
+	public String getOperand(int index) {
+		return request.substring(operandStarts[index], operandEnds[index]);
+	}
+}
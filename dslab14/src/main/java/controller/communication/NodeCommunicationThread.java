@@ -16,7 +16,10 @@ import java.util.concurrent.ConcurrentHashMap;
 
 import cli.MyShell;
 import controller.CloudController;
+import controller.balancing.LoadBalancer;
+import controller.info.CircuitBreaker;
 import controller.info.NodeInfo;
+import controller.info.NodeRoutingIndex;
 
 /**
  * Thread to listen for incoming data packets on the given socket.
@@ -26,20 +29,37 @@ public class NodeCommunicationThread extends Thread {
 	private CloudController cloudController;
 	private DatagramSocket datagramSocket;
 	private Map<Integer, NodeInfo> nodeInfos;
+	private NodeRoutingIndex routingIndex;
+	/** online nodes with a half open circuit breaker */
+	private volatile List<NodeInfo> probingNodes = Collections.emptyList();
+	private LoadBalancer loadBalancer;
 	private int timeToOffline;
 	private int checkPeriod;
 	private int rmax;
 	private MyShell shell;
 	
+	private Map<Integer, NodeConnectionPool> connectionPools;
+	private int poolSize;
+	private int poolIdleTimeout;
+	private int breakerFailures;
+	private int breakerOpenTime;
 
-	public NodeCommunicationThread(CloudController cloudController, DatagramSocket datagramSocket, int timeToOffline, int checkPeriod, int rmax, MyShell shell) {
+	public NodeCommunicationThread(CloudController cloudController, DatagramSocket datagramSocket, int timeToOffline, int checkPeriod, int rmax, 
+			int poolSize, int poolIdleTimeout, int breakerFailures, int breakerOpenTime, LoadBalancer loadBalancer, MyShell shell) {
 		this.cloudController = cloudController;
 		this.datagramSocket = datagramSocket;
 		this.timeToOffline = timeToOffline;
 		this.checkPeriod = checkPeriod;		
 		this.rmax = rmax;
+		this.poolSize = poolSize;
+		this.poolIdleTimeout = poolIdleTimeout;
+		this.breakerFailures = breakerFailures;
+		this.breakerOpenTime = breakerOpenTime;
 		this.shell = shell;
 		this.nodeInfos = new ConcurrentHashMap<>();			
+		this.routingIndex = new NodeRoutingIndex();
+		this.loadBalancer = loadBalancer;
+		this.connectionPools = new ConcurrentHashMap<>();
 	}
 	
 	public List<NodeInfo> nodeInfos() {
@@ -59,26 +79,118 @@ public class NodeCommunicationThread extends Thread {
 		return infos;
 	}
 	
-	public List<NodeInfo> getNodeInfosWithAvailableOperation(Character operation) {
-		List<NodeInfo> available = new ArrayList<>();
-		
-		for(NodeInfo nodeInfo : nodeInfos.values()) {
-			if(nodeInfo.getStatus().equals(NodeInfo.Status.ONLINE) &&
-					nodeInfo.getOperators().contains(operation)) {
-				available.add(nodeInfo);
+	/**
+	 * @param operation the operator
+	 * @return the online nodes supporting the operator, the list must not be modified
+	 */
+	public List<NodeInfo> getNodeInfosWithAvailableOperation(char operation) {
+		return routingIndex.getNodes(operation);
+	}
+	
+	/**
+	 * @param operation the operator
+	 * @return a node waiting for the probe of its half open circuit breaker,
+	 *         otherwise the node chosen by the load balancer, or null if no
+	 *         online node supports the operator
+	 */
+	public NodeInfo selectNode(char operation) {
+		List<NodeInfo> probingNodes = this.probingNodes;
+		for (int i = 0; i < probingNodes.size(); i++) {
+			NodeInfo nodeInfo = probingNodes.get(i);
+			if(nodeInfo.getOperators().contains(operation) && nodeInfo.getCircuitBreaker().tryProbe()) {
+				return nodeInfo;
 			}
 		}
-		return available;
+		return loadBalancer.select(operation);
+	}
+	
+	/**
+	 * Increases the usage of the node and informs the load balancer about it.
+	 */
+	public void addUsage(NodeInfo nodeInfo, long usage) {
+		nodeInfo.addUsage(usage);
+		loadBalancer.usageChanged(nodeInfo);
+	}
+	
+	/**
+	 * Closes the circuit breaker of the node after a successful request.
+	 */
+	public void reportSuccess(NodeInfo nodeInfo) {
+		if(nodeInfo.getCircuitBreaker().recordSuccess()) {
+			rebuildRouting();
+		}
+	}
+	
+	/**
+	 * Counts a failed request of the node. The node is not selected anymore
+	 * once its circuit breaker opened.
+	 */
+	public void reportFailure(NodeInfo nodeInfo) {
+		if(nodeInfo.getCircuitBreaker().recordFailure()) {
+			connectionPools.get(nodeInfo.getTcpPort()).evictAll();
+			rebuildRouting();
+		}
+	}
+	
+	private synchronized void rebuildRouting() {
+		routingIndex.rebuild(nodeInfos.values());
+		loadBalancer.rebuild(routingIndex);
+		List<NodeInfo> probing = new ArrayList<>();
+		for (NodeInfo nodeInfo : nodeInfos.values()) {
+			if(nodeInfo.isProbing()) {
+				probing.add(nodeInfo);
+			}
+		}
+		probingNodes = probing.isEmpty() ? Collections.<NodeInfo>emptyList() : probing;
+	}
+	
+	/**
+	 * @return all operators supported by the online nodes
+	 */
+	public String getAvailableOperators() {
+		return routingIndex.getOperators();
+	}
+	
+	/**
+	 * @param operation the operator
+	 * @return true, if at least one online node supports the operator
+	 */
+	public boolean isOperationAvailable(char operation) {
+		return routingIndex.isSupported(operation);
+	}
+	
+	/**
+	 * @param nodeInfo the node
+	 * @return the pool of persistent connections to the given node
+	 */
+	public NodeConnectionPool getConnectionPool(NodeInfo nodeInfo) {
+		return connectionPools.get(nodeInfo.getTcpPort());
+	}
+	
+	/**
+	 * Closes all pooled connections to the nodes.
+	 */
+	public void closeConnectionPools() {
+		for (NodeConnectionPool connectionPool : connectionPools.values()) {
+			connectionPool.close();
+		}
 	}
 
 	public void run() {
 		TimerTask action = new TimerTask() {				
             public void run() {
+            	boolean changed = false;
             	for(NodeInfo nodeInfo : nodeInfos.values()) {
-            		if(nodeInfo.getTimeout() >= timeToOffline) {
+            		if(nodeInfo.getTimeout() >= timeToOffline && nodeInfo.getStatus().equals(NodeInfo.Status.ONLINE)) {
             			nodeInfo.setStatus(NodeInfo.Status.OFFLINE);
+            			connectionPools.get(nodeInfo.getTcpPort()).evictAll();
+            			changed = true;
             		}
             		nodeInfo.setTimeout(nodeInfo.getTimeout() + checkPeriod);
+            		changed |= nodeInfo.getCircuitBreaker().tryHalfOpen();
+            	}
+            	if(changed) {
+            		rebuildRouting();
             	}
             }
         };
@@ -105,12 +217,25 @@ public class NodeCommunicationThread extends Thread {
 				if(request.startsWith("!alive")) {
 					int tcpPort = Integer.valueOf(array[1]);
 					String operators = array[2].trim();
+					// nodes also announce their committed resources
+					int resources = array.length > 3 ? Integer.parseInt(array[3].trim()) : 0;
 					if(! nodeInfos.containsKey(tcpPort)) {
-						nodeInfos.put(tcpPort,  new NodeInfo(ip, tcpPort, NodeInfo.Status.ONLINE, 0, operators));
+						NodeInfo nodeInfo = new NodeInfo(ip, tcpPort, NodeInfo.Status.ONLINE, 0, operators);
+						nodeInfo.setResources(resources);
+						nodeInfo.setCircuitBreaker(new CircuitBreaker(breakerFailures, breakerOpenTime));
+						connectionPools.put(tcpPort, new NodeConnectionPool(nodeInfo, poolSize, cloudController.getTimeOut(), poolIdleTimeout));
+						nodeInfos.put(tcpPort, nodeInfo);
+						rebuildRouting();
 					} else {
-						nodeInfos.get(tcpPort).setTimeout(0);
-						nodeInfos.get(tcpPort).setStatus(NodeInfo.Status.ONLINE);
-						nodeInfos.get(tcpPort).addOperators(operators);
+						NodeInfo nodeInfo = nodeInfos.get(tcpPort);
+						boolean changed = nodeInfo.getStatus().equals(NodeInfo.Status.OFFLINE) || nodeInfo.getResources() != resources;
+						nodeInfo.setTimeout(0);
+						nodeInfo.setResources(resources);
+						nodeInfo.setStatus(NodeInfo.Status.ONLINE);
+						changed |= nodeInfo.addOperators(operators);
+						if(changed) {
+							rebuildRouting();
+						}
 					}					
 				} else if(request.startsWith("!hello")) {
 					sendInitToNode(packet.getSocketAddress());
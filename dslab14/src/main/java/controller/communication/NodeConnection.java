@@ -0,0 +1,91 @@
+package controller.communication;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.Socket;
+
+import controller.info.NodeInfo;
+
+/**
+ * A persistent TCP connection from the cloud controller to a node.
+ * <p/>
+ * The node answers every request line with exactly one response line, so a
+ * connection can be reused for any number of sequential requests.
+ */
+public class NodeConnection {
+
+	private Socket socket;
+	private BufferedReader reader;
+	private PrintWriter writer;
+	private int generation;
+	private long lastUsed;
+	private boolean reused;
+
+	public NodeConnection(NodeInfo nodeInfo, int timeout, int generation) throws IOException {
+		this.socket = new Socket(nodeInfo.getIp(), nodeInfo.getTcpPort());
+		this.generation = generation;
+		this.lastUsed = System.currentTimeMillis();
+
+		try {
+			socket.setSoTimeout(timeout);
+			socket.setTcpNoDelay(true);
+			reader = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+			writer = new PrintWriter(socket.getOutputStream(), true);
+		} catch (IOException e) {
+			close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Sends the request line and blocks until the response line was read or
+	 * the socket timeout expired.
+	 *
+	 * @param request the request line
+	 * @return the response line
+	 * @throws IOException if the connection was closed by the node or an I/O error occurs
+	 */
+	public String sendAndReceive(String request) throws IOException {
+		writer.println(request);
+		if(writer.checkError()) {
+			throw new IOException("cannot write to node");
+		}
+		String response = reader.readLine();
+		if(response == null) {
+			throw new IOException("connection closed by node");
+		}
+		lastUsed = System.currentTimeMillis();
+		return response;
+	}
+
+	/**
+	 * @param maxIdle the maximal time in ms a connection may stay unused
+	 * @return true, if the connection is open and was used recently
+	 */
+	public boolean isHealthy(long maxIdle) {
+		return socket.isConnected() && !socket.isClosed() && !socket.isInputShutdown()
+				&& !socket.isOutputShutdown() && System.currentTimeMillis() - lastUsed < maxIdle;
+	}
+
+	public int getGeneration() {
+		return generation;
+	}
+
+	public boolean isReused() {
+		return reused;
+	}
+
+	public void setReused(boolean reused) {
+		this.reused = reused;
+	}
+
+	public void close() {
+		if (!socket.isClosed()) {
+			try {
+				socket.close();
+			} catch (IOException e) { }
+		}
+	}
+}
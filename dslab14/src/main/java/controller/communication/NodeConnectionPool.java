@@ -0,0 +1,190 @@
+package controller.communication;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import controller.info.NodeInfo;
+
+/**
+ * Bounded pool of persistent {@link NodeConnection}s to a single node.
+ * <p/>
+ * At most {@code maxSize} connections are in use or idle at the same time.
+ * Idle connections are checked before they are handed out again and all of
+ * them are evicted as soon as the node goes offline.
+ */
+public class NodeConnectionPool {
+
+	private NodeInfo nodeInfo;
+	private int maxSize;
+	private int timeout;
+	private long maxIdle;
+
+	private LinkedBlockingDeque<NodeConnection> idleConnections = new LinkedBlockingDeque<>();
+	private Semaphore permits;
+	private volatile int generation = 0;
+	private volatile boolean closed = false;
+
+	/**
+	 * @param nodeInfo the node to connect to
+	 * @param maxSize the maximal number of open connections
+	 * @param timeout the read timeout in ms of a single request
+	 * @param maxIdle the time in ms after which an unused connection is dropped
+	 */
+	public NodeConnectionPool(NodeInfo nodeInfo, int maxSize, int timeout, long maxIdle) {
+		this.nodeInfo = nodeInfo;
+		this.maxSize = maxSize;
+		this.timeout = timeout;
+		this.maxIdle = maxIdle;
+		this.permits = new Semaphore(maxSize, true);
+	}
+
+	/**
+	 * Sends the request over a pooled connection and returns the response of
+	 * the node. A reused connection which turns out to be stale is replaced
+	 * once by a fresh one.
+	 *
+	 * @param request the request line
+	 * @return the response line
+	 * @throws IOException if the node cannot be reached or does not answer in time
+	 * @throws PoolUnavailableException if the pool has no free connection
+	 */
+	public String send(String request) throws IOException {
+		return send(request, null);
+	}
+
+	/**
+	 * Sends the request like {@link #send(String)}, on a connection which
+	 * can be closed through the handle.
+	 *
+	 * @param request the request line
+	 * @param handle the handle to abort the request, or null
+	 * @return the response line
+	 * @throws IOException if the node cannot be reached, does not answer in
+	 *             time or the request was aborted
+	 */
+	public String send(String request, NodeRequest handle) throws IOException {
+		NodeConnection connection = borrow();
+		try {
+			String response = sendOn(connection, request, handle);
+			release(connection);
+			return response;
+		} catch (SocketTimeoutException e) {
+			invalidate(connection);
+			throw e;
+		} catch (IOException e) {
+			invalidate(connection);
+			if(!connection.isReused() || (handle != null && handle.isAborted())) {
+				throw e;
+			}
+		}
+
+		connection = borrow();
+		try {
+			String response = sendOn(connection, request, handle);
+			release(connection);
+			return response;
+		} catch (IOException e) {
+			invalidate(connection);
+			throw e;
+		}
+	}
+
+	private String sendOn(NodeConnection connection, String request, NodeRequest handle) throws IOException {
+		if(handle == null) {
+			return connection.sendAndReceive(request);
+		}
+		try {
+			handle.attach(connection);
+			return connection.sendAndReceive(request);
+		} finally {
+			handle.detach();
+		}
+	}
+
+	private NodeConnection borrow() throws IOException {
+		if(closed) {
+			throw new PoolUnavailableException("connection pool is closed");
+		}
+		try {
+			if(!permits.tryAcquire(timeout, TimeUnit.MILLISECONDS)) {
+				throw new PoolUnavailableException("no free connection to node " + nodeInfo.getTcpPort());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new PoolUnavailableException("interrupted while waiting for a connection");
+		}
+
+		NodeConnection connection;
+		while ((connection = idleConnections.pollFirst()) != null) {
+			if(connection.getGeneration() == generation && connection.isHealthy(maxIdle)) {
+				connection.setReused(true);
+				return connection;
+			}
+			connection.close();
+		}
+
+		try {
+			return new NodeConnection(nodeInfo, timeout, generation);
+		} catch (IOException e) {
+			permits.release();
+			throw e;
+		}
+	}
+
+	private void release(NodeConnection connection) {
+		if(closed || connection.getGeneration() != generation) {
+			connection.close();
+		} else {
+			idleConnections.offerFirst(connection);
+		}
+		permits.release();
+	}
+
+	private void invalidate(NodeConnection connection) {
+		connection.close();
+		permits.release();
+	}
+
+	/**
+	 * Closes all idle connections. Connections currently in use are closed as
+	 * soon as they are given back.
+	 */
+	public void evictAll() {
+		generation++;
+		NodeConnection connection;
+		while ((connection = idleConnections.pollFirst()) != null) {
+			connection.close();
+		}
+	}
+
+	/**
+	 * Closes the pool and all of its connections.
+	 */
+	public void close() {
+		closed = true;
+		evictAll();
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	public int getIdleCount() {
+		return idleConnections.size();
+	}
+
+	/**
+	 * Signals that a request was not sent, because the pool had no free
+	 * connection or was closed. It tells nothing about the health of the node.
+	 */
+	public static class PoolUnavailableException extends IOException {
+		private static final long serialVersionUID = 6393187512236981418L;
+
+		public PoolUnavailableException(String message) {
+			super(message);
+		}
+	}
+}
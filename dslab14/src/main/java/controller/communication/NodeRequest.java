@@ -0,0 +1,79 @@
+package controller.communication;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A request to a node, which another thread can abort by closing the
+ * connection it is sent on.
+ * <p/>
+ * A hedged request and its hedge are paired: the first one with a valid
+ * result wins and aborts the other one, so only the winner is counted.
+ */
+public class NodeRequest {
+
+	private final AtomicBoolean decided;
+	private NodeRequest other;
+	private volatile NodeConnection connection;
+	private volatile boolean aborted;
+
+	public NodeRequest() {
+		this(new AtomicBoolean());
+	}
+
+	private NodeRequest(AtomicBoolean decided) {
+		this.decided = decided;
+	}
+
+	/**
+	 * @return a new request, which races with this one
+	 */
+	public NodeRequest pair() {
+		NodeRequest hedge = new NodeRequest(decided);
+		hedge.other = this;
+		this.other = hedge;
+		return hedge;
+	}
+
+	/**
+	 * Claims the result of the request and aborts the paired request.
+	 * 
+	 * @return false, if the paired request has already won
+	 */
+	public boolean win() {
+		if(!decided.compareAndSet(false, true)) {
+			return false;
+		}
+		if(other != null) {
+			other.abort();
+		}
+		return true;
+	}
+
+	/**
+	 * Aborts the request. A request waiting for the node fails with an
+	 * IOException.
+	 */
+	public void abort() {
+		aborted = true;
+		NodeConnection current = connection;
+		if(current != null) {
+			current.close();
+		}
+	}
+
+	public boolean isAborted() {
+		return aborted;
+	}
+
+	void attach(NodeConnection connection) throws IOException {
+		this.connection = connection;
+		if(aborted) {
+			throw new IOException("request aborted");
+		}
+	}
+
+	void detach() {
+		this.connection = null;
+	}
+}
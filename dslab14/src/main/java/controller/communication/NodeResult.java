@@ -0,0 +1,66 @@
+package controller.communication;
+
+/**
+ * The verified result of a term computed by a node, with the number of
+ * operations the node evaluated for it. A term which fails in the middle,
+ * e.g. with a division by 0, is only charged up to the failed operation.
+ */
+public class NodeResult {
+
+	private final String value;
+	private final int operations;
+	private final int resultLength;
+
+	private NodeResult(String value, int operations, int resultLength) {
+		this.value = value;
+		this.operations = operations;
+		this.resultLength = resultLength;
+	}
+
+	/**
+	 * Parses the result message of a node, {@code !result <operations>
+	 * <characters of the results> <value>}.
+	 *
+	 * @param resultTerm the result message
+	 * @return the result or null, if the message is not a valid result
+	 */
+	public static NodeResult parse(String resultTerm) {
+		String[] parts = resultTerm.split(" ", 4);
+		if(parts.length != 4 || !parts[0].equals("!result")) {
+			return null;
+		}
+		try {
+			int operations = Integer.parseInt(parts[1]);
+			int resultLength = Integer.parseInt(parts[2]);
+			if(operations < 0 || resultLength < 0) {
+				return null;
+			}
+			return new NodeResult(parts[3].trim(), operations, resultLength);
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * @return the value or error message of the term
+	 */
+	public String getValue() {
+		return value;
+	}
+
+	/**
+	 * @return the number of operations of the term the node evaluated,
+	 *         including an operation which failed
+	 */
+	public int getOperationCount() {
+		return operations;
+	}
+
+	/**
+	 * @return the total number of characters of the results of the
+	 *         evaluated operations, which the usage of the node is based on
+	 */
+	public int getResultLength() {
+		return resultLength;
+	}
+}
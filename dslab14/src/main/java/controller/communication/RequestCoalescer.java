@@ -0,0 +1,68 @@
+package controller.communication;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.LongAdder;
+
+import controller.communication.ClientCommunicationThread.ComputationException;
+
+/**
+ * Lets concurrent sessions which compute the same term share a single node
+ * request.
+ * <p/>
+ * The first session computing a term runs the request, every session asking
+ * for the same term while it is in flight waits for and receives the same
+ * result or error. The term is forgotten as soon as the request completed,
+ * so results are never reused afterwards.
+ *
+ * @param <T> the type of the results
+ */
+class RequestCoalescer<T> {
+
+	private final ConcurrentHashMap<String, FutureTask<T>> inFlight = new ConcurrentHashMap<>();
+	private final LongAdder coalesced = new LongAdder();
+
+	/**
+	 * Runs the request for the given term, or waits for the request already
+	 * running for it.
+	 *
+	 * @param term the term sent to the node
+	 * @param request computes the term on a node
+	 * @return the result of the request
+	 * @throws ComputationException if the node did not return a valid result
+	 * @throws IOException if the node cannot be reached or does not answer in time
+	 */
+	public T execute(String term, Callable<T> request) throws ComputationException, IOException {
+		FutureTask<T> task = new FutureTask<>(request);
+		FutureTask<T> running = inFlight.putIfAbsent(term, task);
+		if(running == null) {
+			try {
+				task.run();
+			} finally {
+				inFlight.remove(term, task);
+			}
+		} else {
+			coalesced.increment();
+			task = running;
+		}
+
+		try {
+			return task.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("interrupted while waiting for the node");
+		} catch (ExecutionException e) {
+			throw ClientCommunicationThread.rethrowCause(e);
+		}
+	}
+
+	/**
+	 * @return the number of requests which were answered by a request of another session
+	 */
+	public long getCoalescedCount() {
+		return coalesced.sum();
+	}
+}
@@ -0,0 +1,170 @@
+package controller.communication;
+
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+
+import org.bouncycastle.util.encoders.Base64;
+
+import util.SecurityUtil;
+
+/**
+ * Issues and redeems session tickets, which let a client open a new session
+ * without the RSA handshake.
+ * <p/>
+ * A ticket holds the name of the user, a random secret, its issue time and
+ * a random id, encrypted and authenticated with AES-GCM under a key only the
+ * controller knows. The client receives the ticket together with the secret
+ * over its secure channel. Every ticket can be redeemed once: the ids of
+ * redeemed tickets are kept in a bounded replay cache, and tickets issued
+ * before the newest id dropped from the full cache are rejected.
+ */
+public class SessionTickets {
+
+	private static final String ALGORITHM = "AES/GCM/NoPadding";
+	private static final int NONCE_LENGTH = 12;
+	private static final int TAG_LENGTH = 128;
+	private static final int SECRET_LENGTH = 32;
+	private static final int ID_LENGTH = 16;
+
+	private final SecretKey ticketKey = SecurityUtil.createAESKey();
+	private final long lifetime;
+	private final int replayCacheSize;
+
+	/** ids of the redeemed tickets, mapped to their issue time */
+	private final LinkedHashMap<String, Long> redeemed = new LinkedHashMap<>();
+	private long rejectIssuedBefore = Long.MIN_VALUE;
+
+	/**
+	 * @param lifetime the time in ms a ticket can be redeemed
+	 * @param replayCacheSize the maximal number of remembered redeemed tickets
+	 */
+	public SessionTickets(long lifetime, int replayCacheSize) {
+		this.lifetime = lifetime;
+		this.replayCacheSize = replayCacheSize;
+	}
+
+	/**
+	 * Issues a new ticket for the user.
+	 *
+	 * @param username the name of the authenticated user
+	 * @return the ticket
+	 * @throws GeneralSecurityException if the ticket cannot be encrypted
+	 */
+	public Ticket issue(String username) throws GeneralSecurityException {
+		byte[] secret = SecurityUtil.createRandom(SECRET_LENGTH);
+		byte[] id = SecurityUtil.createRandom(ID_LENGTH);
+		long issued = System.currentTimeMillis();
+		byte[] name = username.getBytes();
+
+		ByteBuffer plain = ByteBuffer.allocate(8 + ID_LENGTH + SECRET_LENGTH + name.length);
+		plain.putLong(issued).put(id).put(secret).put(name);
+
+		byte[] nonce = SecurityUtil.createRandom(NONCE_LENGTH);
+		Cipher cipher = Cipher.getInstance(ALGORITHM);
+		cipher.init(Cipher.ENCRYPT_MODE, ticketKey, new GCMParameterSpec(TAG_LENGTH, nonce));
+		byte[] encrypted = cipher.doFinal(plain.array());
+
+		byte[] ticket = new byte[NONCE_LENGTH + encrypted.length];
+		System.arraycopy(nonce, 0, ticket, 0, NONCE_LENGTH);
+		System.arraycopy(encrypted, 0, ticket, NONCE_LENGTH, encrypted.length);
+		return new Ticket(username, secret, ticket);
+	}
+
+	/**
+	 * Redeems the ticket, if it was issued by this controller, has not
+	 * expired and was not redeemed before.
+	 *
+	 * @param ticket the encrypted ticket
+	 * @return the decrypted ticket or null, if the ticket is not valid
+	 */
+	public Ticket redeem(byte[] ticket) {
+		if(ticket.length <= NONCE_LENGTH) {
+			return null;
+		}
+		ByteBuffer plain;
+		try {
+			Cipher cipher = Cipher.getInstance(ALGORITHM);
+			cipher.init(Cipher.DECRYPT_MODE, ticketKey, new GCMParameterSpec(TAG_LENGTH, ticket, 0, NONCE_LENGTH));
+			plain = ByteBuffer.wrap(cipher.doFinal(ticket, NONCE_LENGTH, ticket.length - NONCE_LENGTH));
+		} catch (GeneralSecurityException e) {
+			return null;
+		}
+		if(plain.remaining() <= 8 + ID_LENGTH + SECRET_LENGTH) {
+			return null;
+		}
+
+		long issued = plain.getLong();
+		byte[] id = new byte[ID_LENGTH];
+		byte[] secret = new byte[SECRET_LENGTH];
+		byte[] name = new byte[plain.remaining() - ID_LENGTH - SECRET_LENGTH];
+		plain.get(id).get(secret).get(name);
+
+		long now = System.currentTimeMillis();
+		if(now - issued > lifetime || !markRedeemed(new String(Base64.encode(id)), issued, now)) {
+			return null;
+		}
+		return new Ticket(new String(name), secret, ticket);
+	}
+
+	private synchronized boolean markRedeemed(String id, long issued, long now) {
+		if(issued <= rejectIssuedBefore || redeemed.containsKey(id)) {
+			return false;
+		}
+		Iterator<Map.Entry<String, Long>> iterator = redeemed.entrySet().iterator();
+		while (iterator.hasNext()) {
+			Map.Entry<String, Long> eldest = iterator.next();
+			if(now - eldest.getValue() > lifetime) {
+				// expired tickets are rejected anyway and need not be remembered
+				iterator.remove();
+			} else if(redeemed.size() >= replayCacheSize) {
+				// a forgotten ticket could be replayed, so every ticket issued until then is rejected
+				rejectIssuedBefore = Math.max(rejectIssuedBefore, eldest.getValue());
+				iterator.remove();
+			} else {
+				break;
+			}
+		}
+		redeemed.put(id, issued);
+		return true;
+	}
+
+	/**
+	 * A decrypted session ticket.
+	 */
+	public static class Ticket {
+		private final String username;
+		private final byte[] secret;
+		private final byte[] encrypted;
+
+		Ticket(String username, byte[] secret, byte[] encrypted) {
+			this.username = username;
+			this.secret = secret;
+			this.encrypted = encrypted;
+		}
+
+		public String getUsername() {
+			return username;
+		}
+
+		/**
+		 * @return the secret the keys of a resumed session are derived from
+		 */
+		public byte[] getSecret() {
+			return secret;
+		}
+
+		/**
+		 * @return the ticket as sent to the client
+		 */
+		public byte[] getEncrypted() {
+			return encrypted;
+		}
+	}
+}
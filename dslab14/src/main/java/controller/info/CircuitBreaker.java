@@ -0,0 +1,112 @@
+package controller.info;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Circuit breaker of a single node.
+ * <p/>
+ * The breaker opens after the configured number of consecutive failed
+ * requests, an open node is not selected for any request. After the open
+ * time the breaker is half open and the node receives a single probe
+ * request, all other requests still go to other nodes: a success of the
+ * probe closes the breaker, a failure opens it again. A probe without an
+ * outcome is given up after the open time, then another probe is admitted.
+ */
+public class CircuitBreaker {
+
+	public enum State {
+		CLOSED("closed"),
+		OPEN("open"),
+		HALF_OPEN("half-open");
+
+		private String text;
+
+		private State(String text) {
+			this.text = text;
+		}
+
+		public String getText() {
+			return text;
+		}
+	}
+
+	private final int failureThreshold;
+	private final long openTime;
+
+	private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+	private final AtomicInteger consecutiveFailures = new AtomicInteger();
+	private volatile long openedAt;
+	/** start of the running probe, 0 if there is none */
+	private final AtomicLong probeStartedAt = new AtomicLong();
+
+	/**
+	 * @param failureThreshold the number of consecutive failures which opens the breaker
+	 * @param openTime the time in ms the breaker stays open
+	 */
+	public CircuitBreaker(int failureThreshold, long openTime) {
+		this.failureThreshold = failureThreshold;
+		this.openTime = openTime;
+	}
+
+	/**
+	 * @return true, if the breaker was not closed before
+	 */
+	public boolean recordSuccess() {
+		consecutiveFailures.set(0);
+		return state.getAndSet(State.CLOSED) != State.CLOSED;
+	}
+
+	/**
+	 * @return true, if the breaker opened
+	 */
+	public boolean recordFailure() {
+		int failures = consecutiveFailures.incrementAndGet();
+		State current = state.get();
+		if(current == State.HALF_OPEN || (current == State.CLOSED && failures >= failureThreshold)) {
+			if(state.compareAndSet(current, State.OPEN)) {
+				openedAt = System.currentTimeMillis();
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Lets the node receive requests again, if the breaker has been open for
+	 * the open time.
+	 *
+	 * @return true, if the breaker is half open now
+	 */
+	public boolean tryHalfOpen() {
+		if(state.get() == State.OPEN && System.currentTimeMillis() - openedAt >= openTime) {
+			probeStartedAt.set(0);
+			return state.compareAndSet(State.OPEN, State.HALF_OPEN);
+		}
+		return false;
+	}
+
+	/**
+	 * Admits the probe request, if the breaker is half open and no other
+	 * probe is running.
+	 *
+	 * @return true, if the caller may send the probe to the node
+	 */
+	public boolean tryProbe() {
+		if(state.get() != State.HALF_OPEN) {
+			return false;
+		}
+		long now = System.currentTimeMillis();
+		long startedAt = probeStartedAt.get();
+		return (startedAt == 0 || now - startedAt >= openTime) && probeStartedAt.compareAndSet(startedAt, now);
+	}
+
+	public State getState() {
+		return state.get();
+	}
+
+	public int getConsecutiveFailures() {
+		return consecutiveFailures.get();
+	}
+}
@@ -1,5 +1,7 @@
 package controller.info;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 public class ClientInfo {
 	
 	public enum Status {
@@ -20,13 +22,14 @@ public class ClientInfo {
 	private String name;
 	private Status status;
 	private int currentLogins;
-	private long credits;
+	private AtomicLong credits;
+	private RateLimiter rateLimiter;
 		
 	public ClientInfo(String name, Status status, long credits) {
 		super();
 		this.name = name;
 		this.status = status;
-		this.credits = credits;
+		this.credits = new AtomicLong(credits);
 		currentLogins = 0;
 	}
 	
@@ -38,8 +41,11 @@ public class ClientInfo {
 		return status;
 	}
 	
+	/**
+	 * @return the credits which are not reserved by a running computation
+	 */
 	public long getCredits() {
-		return credits;
+		return credits.get();
 	}
 	
 	public void setName(String name) {
@@ -51,15 +57,62 @@ public class ClientInfo {
 	}
 	
 	public void setCredits(long credits) {
-		this.credits = credits;
+		this.credits.set(credits);
+	}
+	
+	/**
+	 * @return the rate limiter of the compute requests, null if the user is not limited
+	 */
+	public RateLimiter getRateLimiter() {
+		return rateLimiter;
 	}
 	
-	public synchronized void addCredits(long credits) {
-		this.credits += credits;
+	public void setRateLimiter(RateLimiter rateLimiter) {
+		this.rateLimiter = rateLimiter;
+	}
+	
+	public void addCredits(long credits) {
+		this.credits.addAndGet(credits);
+	}
+	
+	/**
+	 * Takes the given amount of credits aside for a computation, if the user
+	 * has enough credits.
+	 * 
+	 * @param amount the credits to reserve
+	 * @return true, if the credits were reserved
+	 */
+	public boolean reserveCredits(long amount) {
+		while (true) {
+			long current = credits.get();
+			if(current < amount) {
+				return false;
+			}
+			if(credits.compareAndSet(current, current - amount)) {
+				return true;
+			}
+		}
+	}
+	
+	/**
+	 * Charges the used credits of a reservation and gives back the rest.
+	 * 
+	 * @param reserved the reserved credits
+	 * @param used the credits actually charged, at most the reserved credits
+	 */
+	public void commitCredits(long reserved, long used) {
+		if(reserved != used) {
+			credits.addAndGet(reserved - used);
+		}
 	}
 	
-	public synchronized void minusCredits(long credits) {
-		this.credits -= credits;
+	/**
+	 * Gives back the whole reservation.
+	 * 
+	 * @param reserved the reserved credits
+	 */
+	public void releaseCredits(long reserved) {
+		credits.addAndGet(reserved);
 	}
 
 	public int getCurrentLogins() {
@@ -0,0 +1,95 @@
+package controller.info;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Keeps the latencies of the most recent node requests per operator.
+ * <p/>
+ * Every operator has a ring of the last {@value #SAMPLES} latencies which is
+ * written without locking. Percentiles are computed from a sorted copy of
+ * the ring and kept until {@value #REFRESH} further latencies were recorded,
+ * so they follow changes of the node latency quickly without sorting on
+ * every request.
+ */
+public class LatencyTracker {
+
+	private static final int OPERATOR_RANGE = 128;
+	private static final int SAMPLES = 256;
+	private static final int REFRESH = 16;
+
+	private final AtomicLongArray[] latencies = new AtomicLongArray[OPERATOR_RANGE];
+	private final AtomicInteger[] counts = new AtomicInteger[OPERATOR_RANGE];
+	private final AtomicReferenceArray<CachedPercentile> percentiles = new AtomicReferenceArray<>(OPERATOR_RANGE);
+
+	public LatencyTracker() {
+		for (int i = 0; i < OPERATOR_RANGE; i++) {
+			latencies[i] = new AtomicLongArray(SAMPLES);
+			counts[i] = new AtomicInteger();
+		}
+	}
+
+	/**
+	 * @param operator the operator of the request
+	 * @param latency the time in microseconds until the node answered
+	 */
+	public void record(char operator, long latency) {
+		if(operator < OPERATOR_RANGE) {
+			int index = counts[operator].getAndIncrement() & (SAMPLES - 1);
+			latencies[operator].set(index, latency);
+		}
+	}
+
+	/**
+	 * @param operator the operator
+	 * @return the number of recorded latencies, at most {@value #SAMPLES}
+	 */
+	public int getSampleCount(char operator) {
+		if(operator >= OPERATOR_RANGE) {
+			return 0;
+		}
+		int count = counts[operator].get();
+		return count < 0 || count > SAMPLES ? SAMPLES : count;
+	}
+
+	/**
+	 * @param operator the operator
+	 * @param percentile the percentile, from 1 to 100
+	 * @return the latency in microseconds which the given percentage of the recent
+	 *         requests did not exceed, or -1 if no request was recorded yet
+	 */
+	public long getPercentile(char operator, int percentile) {
+		int samples = getSampleCount(operator);
+		if(samples == 0) {
+			return -1;
+		}
+		int count = counts[operator].get();
+		CachedPercentile cached = percentiles.get(operator);
+		if(cached != null && cached.percentile == percentile && count - cached.count < REFRESH) {
+			return cached.value;
+		}
+		long[] sorted = new long[samples];
+		for (int i = 0; i < samples; i++) {
+			sorted[i] = latencies[operator].get(i);
+		}
+		Arrays.sort(sorted);
+		int rank = (samples * percentile + 99) / 100;
+		long value = sorted[Math.max(rank, 1) - 1];
+		percentiles.set(operator, new CachedPercentile(percentile, count, value));
+		return value;
+	}
+
+	private static class CachedPercentile {
+		private final int percentile;
+		private final int count;
+		private final long value;
+
+		CachedPercentile(int percentile, int count, long value) {
+			this.percentile = percentile;
+			this.count = count;
+			this.value = value;
+		}
+	}
+}
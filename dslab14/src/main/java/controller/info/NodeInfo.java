@@ -3,6 +3,7 @@ package controller.info;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class NodeInfo {
 	
@@ -24,15 +25,17 @@ public class NodeInfo {
 	private String ip;
 	private int tcpPort;
 	private Status status;
-	private long usage;	
+	private AtomicLong usage;	
+	private int resources;
 	private int timeout;
 	private Set<Character> operators;
+	private CircuitBreaker circuitBreaker;
 	
 	public NodeInfo(String ip, int tcpPort, Status status, long usage, String operators) {
 		this.ip = ip;
 		this.tcpPort = tcpPort;
 		this.status = status;
-		this.usage = usage;
+		this.usage = new AtomicLong(usage);
 		this.operators = Collections.synchronizedSet(new HashSet<Character>());
 		addOperators(operators);
 	}
@@ -50,7 +53,7 @@ public class NodeInfo {
 	}
 	
 	public long getUsage() {
-		return usage;
+		return usage.get();
 	}
 	
 	public void setIp(String ip) {
@@ -66,11 +69,22 @@ public class NodeInfo {
 	}
 	
 	public void setUsage(long usage) {
-		this.usage = usage;
+		this.usage.set(usage);
 	}
 	
 	public void addUsage(long usage) {
-		this.usage += usage;
+		this.usage.addAndGet(usage);
+	}
+
+	/**
+	 * @return the resources the node committed in the two-phase commit, 0 if unknown
+	 */
+	public int getResources() {
+		return resources;
+	}
+
+	public void setResources(int resources) {
+		this.resources = resources;
 	}
 
 	public int getTimeout() {
@@ -81,13 +95,46 @@ public class NodeInfo {
 		this.timeout = timeout;
 	}
 
-	public void addOperators(String operators) {
+	/**
+	 * @return true, if at least one of the operators was not supported before
+	 */
+	public boolean addOperators(String operators) {
+		boolean changed = false;
 		for (int i = 0; i < operators.length(); i++) {
-			this.operators.add(operators.charAt(i));
+			changed |= this.operators.add(operators.charAt(i));
 		}		
+		return changed;
 	}
 
 	public Set<Character> getOperators() {
 		return operators;
 	}
+
+	/**
+	 * @return the circuit breaker of the node, null if requests are not guarded
+	 */
+	public CircuitBreaker getCircuitBreaker() {
+		return circuitBreaker;
+	}
+
+	public void setCircuitBreaker(CircuitBreaker circuitBreaker) {
+		this.circuitBreaker = circuitBreaker;
+	}
+
+	/**
+	 * @return true, if the node is online and its circuit breaker is closed
+	 */
+	public boolean isRoutable() {
+		return status.equals(Status.ONLINE)
+				&& (circuitBreaker == null || circuitBreaker.getState() == CircuitBreaker.State.CLOSED);
+	}
+
+	/**
+	 * @return true, if the node is online and waits for the probe of its
+	 *         half open circuit breaker
+	 */
+	public boolean isProbing() {
+		return status.equals(Status.ONLINE)
+				&& circuitBreaker != null && circuitBreaker.getState() == CircuitBreaker.State.HALF_OPEN;
+	}
 }
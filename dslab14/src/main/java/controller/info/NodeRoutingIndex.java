@@ -0,0 +1,88 @@
+package controller.info;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Index of the online nodes by the operators they support. Nodes whose
+ * circuit breaker is not closed are left out.
+ * <p/>
+ * The index is rebuilt when a node comes online, goes offline, its circuit
+ * breaker opens or closes, or it announces
+ * new operators. Lookups read an immutable snapshot and neither lock nor
+ * allocate.
+ */
+public class NodeRoutingIndex {
+
+	private static final int OPERATOR_RANGE = 128;
+
+	private volatile Snapshot snapshot = new Snapshot(new ArrayList<NodeInfo>());
+
+	/**
+	 * Rebuilds the index from the current state of the given nodes.
+	 *
+	 * @param nodeInfos all known nodes, online or offline
+	 */
+	public synchronized void rebuild(Collection<NodeInfo> nodeInfos) {
+		snapshot = new Snapshot(nodeInfos);
+	}
+
+	/**
+	 * @param operator the operator
+	 * @return the online nodes supporting the operator, never null
+	 */
+	public List<NodeInfo> getNodes(char operator) {
+		return operator < OPERATOR_RANGE ? snapshot.nodesByOperator[operator] : Collections.<NodeInfo>emptyList();
+	}
+
+	/**
+	 * @param operator the operator
+	 * @return true, if at least one online node supports the operator
+	 */
+	public boolean isSupported(char operator) {
+		return !getNodes(operator).isEmpty();
+	}
+
+	/**
+	 * @return all operators supported by the online nodes in ascending order
+	 */
+	public String getOperators() {
+		return snapshot.operators;
+	}
+
+	private static class Snapshot {
+		private final List<NodeInfo>[] nodesByOperator;
+		private final String operators;
+
+		@SuppressWarnings("unchecked")
+		Snapshot(Collection<NodeInfo> nodeInfos) {
+			List<NodeInfo>[] lists = (List<NodeInfo>[]) new List<?>[OPERATOR_RANGE];
+			for (NodeInfo nodeInfo : nodeInfos) {
+				if(nodeInfo.isRoutable()) {
+					for (Character operator : nodeInfo.getOperators().toArray(new Character[0])) {
+						if(operator < OPERATOR_RANGE) {
+							if(lists[operator] == null) {
+								lists[operator] = new ArrayList<>();
+							}
+							lists[operator].add(nodeInfo);
+						}
+					}
+				}
+			}
+
+			StringBuilder builder = new StringBuilder();
+			for (char operator = 0; operator < OPERATOR_RANGE; operator++) {
+				if(lists[operator] == null) {
+					lists[operator] = Collections.emptyList();
+				} else {
+					lists[operator] = Collections.unmodifiableList(lists[operator]);
+					builder.append(operator);
+				}
+			}
+			this.nodesByOperator = lists;
+			this.operators = builder.toString();
+		}
+	}
+}
@@ -0,0 +1,157 @@
+package controller.info;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import model.OperatorThroughput;
+
+/**
+ * Counts how often each operator was requested, in total and in rolling
+ * windows of the last 1, 5 and 15 minutes.
+ * <p/>
+ * Counters are {@link LongAdder}s indexed by the operator character, so
+ * concurrent sessions neither lock nor lose increments. The windows are kept
+ * in a ring of ten second slots; a slot is replaced as a whole when its time
+ * has passed. The windows end at the time they are read: the slots within a
+ * window are summed, and the oldest slot, which lies only partly within the
+ * window, is counted in proportion to its overlap.
+ */
+public class OperatorStatistics {
+
+	private static final int OPERATOR_RANGE = 128;
+	private static final long SLOT_LENGTH = TimeUnit.SECONDS.toMillis(10);
+	private static final long ONE_MINUTE = TimeUnit.MINUTES.toMillis(1);
+	private static final long FIVE_MINUTES = TimeUnit.MINUTES.toMillis(5);
+	private static final long FIFTEEN_MINUTES = TimeUnit.MINUTES.toMillis(15);
+	/** the slots of the longest window and the current one */
+	private static final int SLOTS = (int) (FIFTEEN_MINUTES / SLOT_LENGTH) + 1;
+
+	private final LongAdder[] totals = new LongAdder[OPERATOR_RANGE];
+	private final AtomicReferenceArray<Slot> slots = new AtomicReferenceArray<>(SLOTS);
+
+	public OperatorStatistics() {
+		for (int i = 0; i < OPERATOR_RANGE; i++) {
+			totals[i] = new LongAdder();
+		}
+	}
+
+	/**
+	 * Counts every operator of the given string once.
+	 *
+	 * @param operators the operators of a term
+	 */
+	public void record(String operators) {
+		Slot slot = currentSlot(System.currentTimeMillis() / SLOT_LENGTH);
+		for (int i = 0; i < operators.length(); i++) {
+			char operator = operators.charAt(i);
+			if(operator < OPERATOR_RANGE) {
+				totals[operator].increment();
+				slot.counts[operator].increment();
+			}
+		}
+	}
+
+	private Slot currentSlot(long number) {
+		int index = (int) (number % SLOTS);
+		while (true) {
+			Slot slot = slots.get(index);
+			if(slot != null && slot.number == number) {
+				return slot;
+			}
+			if(slot != null && slot.number > number) {
+				// the clock went backwards, count in the newer slot
+				return slot;
+			}
+			Slot fresh = new Slot(number);
+			if(slots.compareAndSet(index, slot, fresh)) {
+				return fresh;
+			}
+		}
+	}
+
+	/**
+	 * @return the total count of every operator requested so far
+	 */
+	public LinkedHashMap<Character, Long> getTotals() {
+		LinkedHashMap<Character, Long> map = new LinkedHashMap<>();
+		for (int i = 0; i < OPERATOR_RANGE; i++) {
+			long sum = totals[i].sum();
+			if(sum > 0) {
+				map.put((char) i, sum);
+			}
+		}
+		return map;
+	}
+
+	/**
+	 * @return the counts of every operator requested so far, in total and
+	 *         within the last 1, 5 and 15 minutes
+	 */
+	public List<OperatorThroughput> getThroughput() {
+		long now = System.currentTimeMillis();
+		double[] lastMinute = new double[OPERATOR_RANGE];
+		double[] lastFiveMinutes = new double[OPERATOR_RANGE];
+		double[] lastFifteenMinutes = new double[OPERATOR_RANGE];
+
+		for (int s = 0; s < SLOTS; s++) {
+			Slot slot = slots.get(s);
+			if(slot == null) {
+				continue;
+			}
+			double oneMinuteShare = share(slot, now, ONE_MINUTE);
+			double fiveMinutesShare = share(slot, now, FIVE_MINUTES);
+			double fifteenMinutesShare = share(slot, now, FIFTEEN_MINUTES);
+			if(fifteenMinutesShare == 0) {
+				continue;
+			}
+			for (int i = 0; i < OPERATOR_RANGE; i++) {
+				long count = slot.counts[i].sum();
+				lastMinute[i] += count * oneMinuteShare;
+				lastFiveMinutes[i] += count * fiveMinutesShare;
+				lastFifteenMinutes[i] += count * fifteenMinutesShare;
+			}
+		}
+
+		List<OperatorThroughput> list = new ArrayList<>();
+		for (int i = 0; i < OPERATOR_RANGE; i++) {
+			long total = totals[i].sum();
+			if(total > 0) {
+				list.add(new OperatorThroughput((char) i, total, Math.round(lastMinute[i]),
+						Math.round(lastFiveMinutes[i]), Math.round(lastFifteenMinutes[i])));
+			}
+		}
+		return list;
+	}
+
+	/**
+	 * @return the part of the counts of the slot which falls into the window
+	 *         ending now, assuming the requests were spread evenly over the
+	 *         elapsed time of the slot
+	 */
+	private static double share(Slot slot, long now, long window) {
+		long start = slot.number * SLOT_LENGTH;
+		long end = Math.min(start + SLOT_LENGTH, now);
+		if(end <= start) {
+			return start <= now ? 1 : 0;
+		}
+		long overlap = end - Math.max(start, now - window);
+		return overlap <= 0 ? 0 : Math.min(1, overlap / (double) (end - start));
+	}
+
+	private static class Slot {
+		/** the start time of the slot divided by the slot length */
+		private final long number;
+		private final LongAdder[] counts = new LongAdder[OPERATOR_RANGE];
+
+		Slot(long number) {
+			this.number = number;
+			for (int i = 0; i < OPERATOR_RANGE; i++) {
+				counts[i] = new LongAdder();
+			}
+		}
+	}
+}
@@ -0,0 +1,49 @@
+package controller.info;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket of a single user, implemented as generic cell rate algorithm.
+ * <p/>
+ * Instead of counting tokens, only the theoretical arrival time of the next
+ * request is kept. A request is allowed, if it does not arrive more than
+ * the burst earlier than that time; allowing it moves the time on by one
+ * emission interval. The check is a single compare-and-set and never locks.
+ */
+public class RateLimiter {
+
+	private final long emissionInterval;
+	private final long tolerance;
+	private final AtomicLong theoreticalArrival = new AtomicLong(Long.MIN_VALUE);
+
+	/**
+	 * @param rate the number of requests per second allowed in the long run
+	 * @param burst the number of requests allowed at once
+	 */
+	public RateLimiter(double rate, int burst) {
+		this.emissionInterval = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+		this.tolerance = emissionInterval * Math.max(burst, 1);
+	}
+
+	/**
+	 * Takes a token, if one is available.
+	 *
+	 * @return 0, if the request is allowed, otherwise the time in ms until
+	 *         the next request will be allowed
+	 */
+	public long tryAcquire() {
+		long now = System.nanoTime();
+		while (true) {
+			long current = theoreticalArrival.get();
+			long next = (current == Long.MIN_VALUE || current - now < 0 ? now : current) + emissionInterval;
+			long earliness = next - now - tolerance;
+			if(earliness > 0) {
+				return Math.max(TimeUnit.NANOSECONDS.toMillis(earliness), 1);
+			}
+			if(theoreticalArrival.compareAndSet(current, next)) {
+				return 0;
+			}
+		}
+	}
+}
@@ -0,0 +1,128 @@
+package controller.info;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of the results of single operations, e.g. {@code 100 * 12}.
+ * <p/>
+ * The cache is split into segments by the hash of the operation, each
+ * segment is an access ordered {@link LinkedHashMap} which evicts its least
+ * recently used entry. Sessions computing different operations therefore
+ * rarely wait for each other. The capacities of the segments add up to the
+ * capacity of the cache, a small cache has fewer segments.
+ */
+public class ResultCache {
+
+	private static final int SEGMENTS = 16;
+
+	private final Segment[] segments;
+	private final int capacity;
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+
+	/**
+	 * @param capacity the maximal number of cached results, 0 disables the cache
+	 */
+	public ResultCache(int capacity) {
+		this.capacity = capacity;
+		// a power of two, so the segment is selected by masking the hash
+		int count = Integer.highestOneBit(Math.max(1, Math.min(SEGMENTS, capacity)));
+		this.segments = new Segment[count];
+		for (int i = 0; i < count; i++) {
+			segments[i] = new Segment(capacity / count + (i < capacity % count ? 1 : 0));
+		}
+	}
+
+	/**
+	 * @param value1 the first operand
+	 * @param operator the operator
+	 * @param value2 the second operand
+	 * @return the key of the operation, which is also the term sent to a node
+	 */
+	public static String key(String value1, char operator, String value2) {
+		return value1 + " " + operator + " " + value2;
+	}
+
+	/**
+	 * @param key the key of the operation
+	 * @return the cached result or null, if the operation was not computed recently
+	 */
+	public String get(String key) {
+		if(capacity == 0) {
+			return null;
+		}
+		String result = segmentFor(key).get(key);
+		if(result == null) {
+			misses.increment();
+		} else {
+			hits.increment();
+		}
+		return result;
+	}
+
+	/**
+	 * @param key the key of the operation
+	 * @param result the result computed by a node
+	 */
+	public void put(String key, String result) {
+		if(capacity == 0) {
+			return;
+		}
+		segmentFor(key).put(key, result);
+	}
+
+	private Segment segmentFor(String key) {
+		int hash = key.hashCode();
+		hash ^= hash >>> 16;
+		return segments[hash & (segments.length - 1)];
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public int getSize() {
+		int size = 0;
+		for (Segment segment : segments) {
+			size += segment.size();
+		}
+		return size;
+	}
+
+	public long getHits() {
+		return hits.sum();
+	}
+
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	private static class Segment {
+		private final LinkedHashMap<String, String> map;
+
+		Segment(final int capacity) {
+			this.map = new LinkedHashMap<String, String>(16, 0.75f, true) {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+					return size() > capacity;
+				}
+			};
+		}
+
+		synchronized String get(String key) {
+			return map.get(key);
+		}
+
+		synchronized void put(String key, String result) {
+			map.put(key, result);
+		}
+
+		synchronized int size() {
+			return map.size();
+		}
+	}
+}
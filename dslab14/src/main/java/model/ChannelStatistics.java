@@ -0,0 +1,120 @@
+package model;
+
+import java.io.Serializable;
+
+/**
+ * The traffic of a client connection of the cloud controller, or of all of
+ * them: bytes and messages in each direction, the median and 99th
+ * percentile of the time waited for a message and of the time needed to
+ * send one, in microseconds.
+ */
+public class ChannelStatistics implements Serializable {
+
+	private static final long serialVersionUID = 6081532347290127453L;
+
+	private String name;
+	private long bytesSent;
+	private long bytesReceived;
+	private long messagesSent;
+	private long messagesReceived;
+	private long readWaitMedian;
+	private long readWait99;
+	private long sendMedian;
+	private long send99;
+
+	public ChannelStatistics(String name, long bytesSent, long bytesReceived, long messagesSent, long messagesReceived,
+			long readWaitMedian, long readWait99, long sendMedian, long send99) {
+		this.name = name;
+		this.bytesSent = bytesSent;
+		this.bytesReceived = bytesReceived;
+		this.messagesSent = messagesSent;
+		this.messagesReceived = messagesReceived;
+		this.readWaitMedian = readWaitMedian;
+		this.readWait99 = readWait99;
+		this.sendMedian = sendMedian;
+		this.send99 = send99;
+	}
+
+	public ChannelStatistics() {
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public long getBytesSent() {
+		return bytesSent;
+	}
+
+	public void setBytesSent(long bytesSent) {
+		this.bytesSent = bytesSent;
+	}
+
+	public long getBytesReceived() {
+		return bytesReceived;
+	}
+
+	public void setBytesReceived(long bytesReceived) {
+		this.bytesReceived = bytesReceived;
+	}
+
+	public long getMessagesSent() {
+		return messagesSent;
+	}
+
+	public void setMessagesSent(long messagesSent) {
+		this.messagesSent = messagesSent;
+	}
+
+	public long getMessagesReceived() {
+		return messagesReceived;
+	}
+
+	public void setMessagesReceived(long messagesReceived) {
+		this.messagesReceived = messagesReceived;
+	}
+
+	public long getReadWaitMedian() {
+		return readWaitMedian;
+	}
+
+	public void setReadWaitMedian(long readWaitMedian) {
+		this.readWaitMedian = readWaitMedian;
+	}
+
+	public long getReadWait99() {
+		return readWait99;
+	}
+
+	public void setReadWait99(long readWait99) {
+		this.readWait99 = readWait99;
+	}
+
+	public long getSendMedian() {
+		return sendMedian;
+	}
+
+	public void setSendMedian(long sendMedian) {
+		this.sendMedian = sendMedian;
+	}
+
+	public long getSend99() {
+		return send99;
+	}
+
+	public void setSend99(long send99) {
+		this.send99 = send99;
+	}
+
+	@Override
+	public String toString() {
+		return name + " Sent: " + messagesSent + " msgs " + bytesSent + " bytes"
+				+ " Received: " + messagesReceived + " msgs " + bytesReceived + " bytes"
+				+ " Read wait p50/p99: " + readWaitMedian + "/" + readWait99 + " us"
+				+ " Send p50/p99: " + sendMedian + "/" + send99 + " us";
+	}
+}
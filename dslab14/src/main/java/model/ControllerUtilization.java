@@ -0,0 +1,111 @@
+package model;
+
+import java.io.Serializable;
+
+/**
+ * The number of open sessions, running and waiting computations of the cloud
+ * controller compared to their limits, and the number of rejected sessions
+ * and computations since the controller started.
+ */
+public class ControllerUtilization implements Serializable {
+
+	private static final long serialVersionUID = -2207193746251983526L;
+
+	private int sessions;
+	private int maxSessions;
+	private int computes;
+	private int maxComputes;
+	private int queuedComputes;
+	private int maxQueuedComputes;
+	private long rejectedSessions;
+	private long rejectedComputes;
+
+	public ControllerUtilization(int sessions, int maxSessions, int computes,
+			int maxComputes, int queuedComputes, int maxQueuedComputes,
+			long rejectedSessions, long rejectedComputes) {
+		this.sessions = sessions;
+		this.maxSessions = maxSessions;
+		this.computes = computes;
+		this.maxComputes = maxComputes;
+		this.queuedComputes = queuedComputes;
+		this.maxQueuedComputes = maxQueuedComputes;
+		this.rejectedSessions = rejectedSessions;
+		this.rejectedComputes = rejectedComputes;
+	}
+
+	public ControllerUtilization() {
+	}
+
+	public int getSessions() {
+		return sessions;
+	}
+
+	public void setSessions(int sessions) {
+		this.sessions = sessions;
+	}
+
+	public int getMaxSessions() {
+		return maxSessions;
+	}
+
+	public void setMaxSessions(int maxSessions) {
+		this.maxSessions = maxSessions;
+	}
+
+	public int getComputes() {
+		return computes;
+	}
+
+	public void setComputes(int computes) {
+		this.computes = computes;
+	}
+
+	public int getMaxComputes() {
+		return maxComputes;
+	}
+
+	public void setMaxComputes(int maxComputes) {
+		this.maxComputes = maxComputes;
+	}
+
+	public int getQueuedComputes() {
+		return queuedComputes;
+	}
+
+	public void setQueuedComputes(int queuedComputes) {
+		this.queuedComputes = queuedComputes;
+	}
+
+	public int getMaxQueuedComputes() {
+		return maxQueuedComputes;
+	}
+
+	public void setMaxQueuedComputes(int maxQueuedComputes) {
+		this.maxQueuedComputes = maxQueuedComputes;
+	}
+
+	public long getRejectedSessions() {
+		return rejectedSessions;
+	}
+
+	public void setRejectedSessions(long rejectedSessions) {
+		this.rejectedSessions = rejectedSessions;
+	}
+
+	public long getRejectedComputes() {
+		return rejectedComputes;
+	}
+
+	public void setRejectedComputes(long rejectedComputes) {
+		this.rejectedComputes = rejectedComputes;
+	}
+
+	@Override
+	public String toString() {
+		return "Sessions: " + sessions + "/" + maxSessions
+				+ " Computes: " + computes + "/" + maxComputes
+				+ " Queued: " + queuedComputes + "/" + maxQueuedComputes
+				+ " Rejected sessions: " + rejectedSessions
+				+ " Rejected computes: " + rejectedComputes;
+	}
+}
@@ -0,0 +1,76 @@
+package model;
+
+import java.io.Serializable;
+
+/**
+ * The number of requests of a single operator, in total and within the last
+ * 1, 5 and 15 minutes.
+ */
+public class OperatorThroughput implements Serializable {
+
+	private static final long serialVersionUID = 3165481750842276312L;
+
+	private char operator;
+	private long total;
+	private long lastMinute;
+	private long lastFiveMinutes;
+	private long lastFifteenMinutes;
+
+	public OperatorThroughput(char operator, long total, long lastMinute,
+			long lastFiveMinutes, long lastFifteenMinutes) {
+		this.operator = operator;
+		this.total = total;
+		this.lastMinute = lastMinute;
+		this.lastFiveMinutes = lastFiveMinutes;
+		this.lastFifteenMinutes = lastFifteenMinutes;
+	}
+
+	public OperatorThroughput() {
+	}
+
+	public char getOperator() {
+		return operator;
+	}
+
+	public void setOperator(char operator) {
+		this.operator = operator;
+	}
+
+	public long getTotal() {
+		return total;
+	}
+
+	public void setTotal(long total) {
+		this.total = total;
+	}
+
+	public long getLastMinute() {
+		return lastMinute;
+	}
+
+	public void setLastMinute(long lastMinute) {
+		this.lastMinute = lastMinute;
+	}
+
+	public long getLastFiveMinutes() {
+		return lastFiveMinutes;
+	}
+
+	public void setLastFiveMinutes(long lastFiveMinutes) {
+		this.lastFiveMinutes = lastFiveMinutes;
+	}
+
+	public long getLastFifteenMinutes() {
+		return lastFifteenMinutes;
+	}
+
+	public void setLastFifteenMinutes(long lastFifteenMinutes) {
+		this.lastFifteenMinutes = lastFifteenMinutes;
+	}
+
+	@Override
+	public String toString() {
+		return operator + " 1min: " + lastMinute + " 5min: " + lastFiveMinutes
+				+ " 15min: " + lastFifteenMinutes + " total: " + total;
+	}
+}
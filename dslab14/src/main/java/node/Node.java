@@ -18,39 +18,36 @@ import java.net.Socket;
 import java.net.UnknownHostException;
 import java.security.InvalidKeyException;
 import java.security.Key;
-import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
-import java.text.SimpleDateFormat;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Date;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
-import javax.crypto.Mac;
-
 import model.ComputationRequestInfo;
 
-import org.apache.commons.logging.LogFactory;
 import org.bouncycastle.util.encoders.Base64;
 
 import util.Config;
+import util.ExecutorFactory;
 import util.Keys;
+import util.MacPool;
 import cli.Command;
 import cli.MyShell;
 
 public class Node implements INodeCli, Runnable {
 	
-	private static final String ALGORITHM = "HmacSHA256";
-	
 	private Key secretKey;
-	private Mac hMac;
+	private MacPool macPool;
 
 	private String componentName;
 	private Config config;
@@ -61,6 +58,7 @@ public class Node implements INodeCli, Runnable {
 	private String logDir;
 
 	private ExecutorService pool;
+	private CopyOnWriteArrayList<Socket> activeSockets;
 	private boolean stop = false;
 	
 	private List<OtherNodeInfo> nodeResourceStatusList;
@@ -72,13 +70,8 @@ public class Node implements INodeCli, Runnable {
 	
 	private Map<String, String> namesOfLogFiles;
 	
-	private static ThreadLocal<SimpleDateFormat> dateFormater = new ThreadLocal<SimpleDateFormat>() {
-	 
-		@Override
-	    protected SimpleDateFormat initialValue() { 
-	        return new SimpleDateFormat("yyyyMMdd_HHmmss.SSS");
-	    }
-	};
+	// immutable and thread-safe, so it is shared instead of cached per thread
+	private static final DateTimeFormatter dateFormater = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss.SSS");
 	
 	
 	/**
@@ -96,12 +89,13 @@ public class Node implements INodeCli, Runnable {
 		this.componentName = componentName;
 		this.config = config;
 	
-		this.pool = Executors.newCachedThreadPool();
+		this.pool = ExecutorFactory.create(config, "node.executor");
+		this.activeSockets = new CopyOnWriteArrayList<>();
 		
 		this.rmin = config.getInt("node.rmin");
 		this.nodeResourceStatusList = Collections.synchronizedList(new ArrayList<OtherNodeInfo>());
 		
-		this.namesOfLogFiles = new HashMap<String, String>();
+		this.namesOfLogFiles = new ConcurrentHashMap<String, String>();
 		this.logDir = System.getProperty("user.dir") + File.separator + config.getString("log.dir") + File.separator;
 		createDir();	
 		
@@ -115,8 +109,7 @@ public class Node implements INodeCli, Runnable {
 		}
 
 		try {
-			this.hMac = Mac.getInstance(ALGORITHM);
-			hMac.init(secretKey);
+			this.macPool = new MacPool(secretKey);
 		} catch (NoSuchAlgorithmException e) {
 			shell.writeLine("algorithm for mac is invalid...");
 		} catch (InvalidKeyException e) {
@@ -149,7 +142,7 @@ public class Node implements INodeCli, Runnable {
 	            	
 	            	try {
 		            	socketAlive = new DatagramSocket();
-		        		String message = "!alive " + config.getInt("tcp.port") + " " + config.getString("node.operators");
+		        		String message = "!alive " + config.getInt("tcp.port") + " " + config.getString("node.operators") + " " + current_resources;
 		        		byte[] buffer = message.getBytes();
 	        	
 						DatagramPacket packet = new DatagramPacket(buffer, buffer.length,
@@ -286,6 +279,13 @@ public class Node implements INodeCli, Runnable {
 			} catch (IOException e) {  }
 		}
 		
+		// the cloud controller keeps its connections open, close them as well
+		for (Socket socket : activeSockets) {
+			try {
+				socket.close();
+			} catch (IOException e) {  }
+		}
+		
 		if(timerIsAlive != null) {
 			timerIsAlive.cancel();
 		}
@@ -323,10 +323,17 @@ public class Node implements INodeCli, Runnable {
 	
 	class NodeRequestThread implements Runnable {
 
+		private static final String COMPUTE = "!compute";
+		private static final String RESULT = "!result ";
+
 		private final Socket socket;
+		private final TermEvaluator evaluator = new TermEvaluator();
+		private final StringBuilder value = new StringBuilder(32);
+		private final StringBuilder response = new StringBuilder(64);
 		
 		public NodeRequestThread(Socket socket) { 
 			this.socket = socket; 
+			activeSockets.add(socket);
 		}	
 		
 		@Override
@@ -339,19 +346,17 @@ public class Node implements INodeCli, Runnable {
 				writer = new PrintWriter(socket.getOutputStream(), true);
 				
 				while ((request = reader.readLine()) != null) {		
-					if(request.contains("!compute")) {
-						int index = request.indexOf("!compute");
+					int index = request.indexOf(COMPUTE);
+					if(index >= 0) {
 						String encodeHash = request.substring(0, index).trim();		
 						String term = request.substring(index, request.length()).trim();
 						if(verifyHash(encodeHash, term)) {
-							String result = "!result " + calculate(term.replaceAll("!compute", "").trim());
-							hMac.update(result.getBytes());	
-							writer.println(new String(Base64.encode(hMac.doFinal())) + " " + result);
+							String result = calculate(term, COMPUTE.length());
+							writer.println(new String(Base64.encode(macPool.sign(result.getBytes()))) + " " + result);
 						} else {
 							shell.writeLine("Hash Code invalid from Term: " + term);
 							String message = "!tampered " + term; 
-							hMac.update(message.getBytes());						
-							writer.println(new String(Base64.encode(hMac.doFinal())) + " " + message);
+							writer.println(new String(Base64.encode(macPool.sign(message.getBytes()))) + " " + message);
 						}
 					} else if(request.startsWith("!share")) {
 						int resourceLevel = Integer.parseInt(request.trim().split("\\s+")[1]);
@@ -393,47 +398,39 @@ public class Node implements INodeCli, Runnable {
 						socket.close();
 					} catch (IOException e) {  }
 				}
+				activeSockets.remove(socket);
 			}		
 		}
 		
-		private String calculate(String term) {
-			LogFactory.getLog("test");
-			String[] termArray = term.split("\\s");
-			
-			int value1 = Integer.parseInt(termArray[0]);
-			int value2 = Integer.parseInt(termArray[2]);
-			String operation = termArray[1];
-			String result = "";
-			if(operation.equals("+")) {
-				result = "" + (value1 + value2);
-			} else if(operation.equals("-")) {
-				result = "" + (value1 - value2);
-			} else if(operation.equals("*")) {
-				result = "" + (value1 * value2);
-			} else if(operation.equals("/")) {
-				if(value2 == 0) {
-					result = "Error: division by 0";
-				} else {
-					result = "" + Math.round((value1 / (double) value2));
-				}
-			} else {
-				result = "Error: not valid operation";
-			}		
-			writeLog(term, result);
+		/**
+		 * Calculates the term after the offset from left to right, e.g.
+		 * {@code 1 + 2 * 3} results in 9. Every intermediate result is rounded
+		 * like the result of a single operation.
+		 * 
+		 * @return the result message, {@code !result <operations>
+		 *         <characters of the results> <value>}, which tells the
+		 *         controller what to charge also for a term which failed in
+		 *         the middle
+		 */
+		private String calculate(String request, int offset) {
+			value.setLength(0);
+			evaluator.evaluate(request, offset, request.length(), value);
+			response.setLength(0);
+			response.append(RESULT).append(evaluator.getOperationCount()).append(' ')
+					.append(evaluator.getResultLength()).append(' ').append(value);
+			String result = response.toString();
+			writeLog(request.substring(offset).trim(), value.toString());
 			return result;
 		}	
 		
 		private boolean verifyHash(String encodeHash, String term) {
 			byte[] receivedHash = Base64.decode(encodeHash);
 			
-			hMac.update(term.getBytes());						
-			byte[] computedHash = hMac.doFinal();
-
-			return MessageDigest.isEqual(computedHash, receivedHash);
+			return macPool.verify(term.getBytes(), receivedHash);
 		}
 		
 		private void writeLog(String term, String result) {
-			String timeStamp =  dateFormater.get().format(new Date());			
+			String timeStamp =  dateFormater.format(LocalDateTime.now());			
 			String fileName = logDir + timeStamp + "_" + componentName + ".log";
 			String fileContent = term + " = " + result;
 			namesOfLogFiles.put(timeStamp, fileContent);
@@ -0,0 +1,228 @@
+package node;
+
+/**
+ * Evaluates the terms of compute requests from left to right, e.g.
+ * {@code 1 + -2 * 3}.
+ * <p/>
+ * The operators are looked up in a table indexed by their character, and the
+ * operands are parsed in place from the characters of the request, so
+ * evaluating a term allocates nothing. An evaluator keeps the position in the
+ * term while it parses, so it must only be used by one thread at a time.
+ */
+public class TermEvaluator {
+
+	public static final String DIVISION_BY_ZERO = "Error: division by 0";
+	public static final String INVALID_OPERATION = "Error: not valid operation";
+	public static final String INVALID_TERM = "Error: invalid term";
+
+	private static final Operation[] OPERATIONS = new Operation[128];
+
+	static {
+		OPERATIONS['+'] = new Operation() {
+			@Override
+			int apply(int value1, int value2) {
+				return value1 + value2;
+			}
+		};
+		OPERATIONS['-'] = new Operation() {
+			@Override
+			int apply(int value1, int value2) {
+				return value1 - value2;
+			}
+		};
+		OPERATIONS['*'] = new Operation() {
+			@Override
+			int apply(int value1, int value2) {
+				return value1 * value2;
+			}
+		};
+		OPERATIONS['/'] = new Operation() {
+			@Override
+			boolean isDefined(int value2) {
+				return value2 != 0;
+			}
+
+			@Override
+			int apply(int value1, int value2) {
+				return (int) Math.round(value1 / (double) value2);
+			}
+		};
+	}
+
+	private CharSequence term;
+	private int position;
+	private int end;
+	private int tokenStart;
+	private int tokenEnd;
+	private int operand;
+	private int operations;
+	private int resultLength;
+
+	/**
+	 * Evaluates the term and appends its value or an error message to the
+	 * result. A term which is empty or has an operand which is no int is
+	 * answered with {@value #INVALID_TERM}. An operator at the end of the
+	 * term without an operand is ignored.
+	 * <p/>
+	 * Afterwards {@link #getOperationCount()} and {@link #getResultLength()}
+	 * tell how much work the term took.
+	 * 
+	 * @param term the characters of the term
+	 * @param start the index of the first character of the term
+	 * @param end the index after the last character of the term
+	 * @param result the builder to append the value or error to
+	 */
+	public void evaluate(CharSequence term, int start, int end, StringBuilder result) {
+		this.term = term;
+		this.position = start;
+		this.end = end;
+		this.operations = 0;
+		this.resultLength = 0;
+		try {
+			if(!nextToken() || !parseOperand()) {
+				result.append(INVALID_TERM);
+				return;
+			}
+			int value = operand;
+			while (nextToken()) {
+				int operatorStart = tokenStart;
+				int operatorLength = tokenEnd - tokenStart;
+				if(!nextToken()) {
+					break;
+				}
+				if(!parseOperand()) {
+					result.append(INVALID_TERM);
+					return;
+				}
+				int value2 = operand;
+				char operator = term.charAt(operatorStart);
+				Operation operation = operatorLength == 1 && operator < OPERATIONS.length ? OPERATIONS[operator] : null;
+				operations++;
+				if(operation == null) {
+					resultLength += INVALID_OPERATION.length();
+					result.append(INVALID_OPERATION);
+					return;
+				}
+				if(!operation.isDefined(value2)) {
+					resultLength += DIVISION_BY_ZERO.length();
+					result.append(DIVISION_BY_ZERO);
+					return;
+				}
+				value = operation.apply(value, value2);
+				resultLength += length(value);
+			}
+			result.append(value);
+		} finally {
+			this.term = null;
+		}
+	}
+
+	/**
+	 * @return the number of operations the last term took, including an
+	 *         operation which failed
+	 */
+	public int getOperationCount() {
+		return operations;
+	}
+
+	/**
+	 * @return the total number of characters of the results of the
+	 *         operations of the last term, with the error message of an
+	 *         operation which failed
+	 */
+	public int getResultLength() {
+		return resultLength;
+	}
+
+	/**
+	 * @return the number of characters of the value
+	 */
+	private static int length(int value) {
+		long rest = value;
+		int length = 1;
+		if(rest < 0) {
+			rest = -rest;
+			length++;
+		}
+		while (rest >= 10) {
+			rest /= 10;
+			length++;
+		}
+		return length;
+	}
+
+	/**
+	 * Moves to the next token separated by whitespace.
+	 * 
+	 * @return false, if the term has no further token
+	 */
+	private boolean nextToken() {
+		int i = position;
+		while (i < end && Character.isWhitespace(term.charAt(i))) {
+			i++;
+		}
+		if(i == end) {
+			position = i;
+			return false;
+		}
+		tokenStart = i;
+		while (i < end && !Character.isWhitespace(term.charAt(i))) {
+			i++;
+		}
+		tokenEnd = i;
+		position = i;
+		return true;
+	}
+
+	/**
+	 * Parses the current token like {@link Integer#parseInt(String)} into
+	 * {@link #operand}.
+	 * 
+	 * @return false, if the token is no int
+	 */
+	private boolean parseOperand() {
+		int i = tokenStart;
+		char first = term.charAt(i);
+		boolean negative = first == '-';
+		if(negative || first == '+') {
+			i++;
+		}
+		if(i == tokenEnd) {
+			return false;
+		}
+		long value = 0;
+		for (; i < tokenEnd; i++) {
+			char c = term.charAt(i);
+			if(c < '0' || c > '9') {
+				return false;
+			}
+			value = value * 10 + (c - '0');
+			if(value > Integer.MAX_VALUE + 1L) {
+				return false;
+			}
+		}
+		if(negative) {
+			value = -value;
+		}
+		if(value > Integer.MAX_VALUE) {
+			return false;
+		}
+		operand = (int) value;
+		return true;
+	}
+
+	/**
+	 * An operation of the dispatch table.
+	 */
+	private static abstract class Operation {
+		/**
+		 * @param value2 the right operand
+		 * @return false, if the operation has no result for the operand
+		 */
+		boolean isDefined(int value2) {
+			return true;
+		}
+
+		abstract int apply(int value1, int value2);
+	}
+}
@@ -5,7 +5,7 @@ import java.net.Socket;
 
 import org.bouncycastle.util.encoders.Base64;
 
-public class Base64Channel implements Channel {
+public class Base64Channel implements SwitchableChannel {
 	private Channel tcpChannel;
 	
 	public Base64Channel()
@@ -18,11 +18,30 @@ public class Base64Channel implements Channel {
 		tcpChannel = new TcpChannel(socket);
 	}
 	
+	/**
+	 * @param lineChannel the line based channel to encode the messages for
+	 */
+	public Base64Channel(Channel lineChannel)
+	{
+		tcpChannel = lineChannel;
+	}
+	
 	@Override
 	public boolean connect(String host, int port) {
 		return tcpChannel.connect(host, port);
 	}
 
+	/**
+	 * Switches the underlying line channel to binary frames, which need no
+	 * Base64 encoding.
+	 */
+	@Override
+	public Channel switchToFrames() throws IOException {
+		if(!(tcpChannel instanceof SwitchableChannel))
+			throw new IOException("the channel cannot switch to frames");
+		return ((SwitchableChannel) tcpChannel).switchToFrames();
+	}
+
 	@Override
 	public boolean isConnected() {
 		return tcpChannel.isConnected();
@@ -44,6 +63,11 @@ public class Base64Channel implements Channel {
 		tcpChannel.sendMessage(base64Message);
 	}
 	
+	@Override
+	public void flush() throws NotConnectedException {
+		tcpChannel.flush();
+	}
+
 	@Override
 	public String readMessage() throws IOException, NotConnectedException {
 		byte[] readMessage = readByteMessage();
@@ -0,0 +1,28 @@
+package util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * A {@link Channel} which hands out received messages and takes messages to
+ * send as {@link ByteBuffer}s, so they need not be copied into arrays.
+ */
+public interface BufferChannel extends Channel {
+	/**
+	 * Reads the next message. This method will block, until a message was
+	 * read.
+	 * 
+	 * @return the message between position and limit of a writable buffer,
+	 *         which is only valid until the next read; or null, if the
+	 *         connection was closed
+	 * @throws IOException if the connection failed
+	 */
+	ByteBuffer readBufferMessage() throws IOException, NotConnectedException;
+
+	/**
+	 * Sends the remaining bytes of the buffers as one message.
+	 * 
+	 * @param parts the parts of the message
+	 */
+	void sendMessage(ByteBuffer... parts) throws NotConnectedException;
+}
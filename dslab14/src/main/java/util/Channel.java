@@ -39,6 +39,13 @@ public interface Channel {
 	 */
 	void sendMessage(byte[] msg) throws NotConnectedException;
 	
+	/**
+	 * Sends the messages buffered by a channel in buffered mode. Buffered
+	 * channels also flush before they block on a read. Does nothing for
+	 * channels which send every message at once.
+	 */
+	void flush() throws NotConnectedException;
+	
 	/**
 	 * Reads a message (one line). This method will block, until a message was read.
 	 * 
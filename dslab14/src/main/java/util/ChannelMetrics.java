@@ -0,0 +1,89 @@
+package util;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The traffic of one or many channels: bytes and messages in each direction,
+ * the time spent waiting for received messages and sending messages.
+ * <p/>
+ * The metrics of a connection can have a parent, e.g. the metrics of all
+ * connections of a server, which records everything as well.
+ */
+public class ChannelMetrics {
+
+	private final ChannelMetrics parent;
+
+	private final LongAdder bytesSent = new LongAdder();
+	private final LongAdder bytesReceived = new LongAdder();
+	private final LongAdder messagesSent = new LongAdder();
+	private final LongAdder messagesReceived = new LongAdder();
+	private final LatencyHistogram readWait = new LatencyHistogram();
+	private final LatencyHistogram sendLatency = new LatencyHistogram();
+
+	public ChannelMetrics() {
+		this(null);
+	}
+
+	/**
+	 * @param parent the metrics which record the traffic as well, or null
+	 */
+	public ChannelMetrics(ChannelMetrics parent) {
+		this.parent = parent;
+	}
+
+	/**
+	 * @param bytes the length of the sent message
+	 * @param nanos the time the send took
+	 */
+	public void recordSent(int bytes, long nanos) {
+		bytesSent.add(bytes);
+		messagesSent.increment();
+		sendLatency.record(nanos);
+		if(parent != null) {
+			parent.recordSent(bytes, nanos);
+		}
+	}
+
+	/**
+	 * @param bytes the length of the received message
+	 * @param nanos the time waited for the message
+	 */
+	public void recordReceived(int bytes, long nanos) {
+		bytesReceived.add(bytes);
+		messagesReceived.increment();
+		readWait.record(nanos);
+		if(parent != null) {
+			parent.recordReceived(bytes, nanos);
+		}
+	}
+
+	public long getBytesSent() {
+		return bytesSent.sum();
+	}
+
+	public long getBytesReceived() {
+		return bytesReceived.sum();
+	}
+
+	public long getMessagesSent() {
+		return messagesSent.sum();
+	}
+
+	public long getMessagesReceived() {
+		return messagesReceived.sum();
+	}
+
+	/**
+	 * @return the time spent in reads until a message was received
+	 */
+	public LatencyHistogram getReadWait() {
+		return readWait;
+	}
+
+	/**
+	 * @return the time spent sending messages
+	 */
+	public LatencyHistogram getSendLatency() {
+		return sendLatency;
+	}
+}
@@ -0,0 +1,67 @@
+package util;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool of direct {@link ByteBuffer}s of a fixed size.
+ * <p/>
+ * Direct buffers are expensive to allocate and are freed only by the garbage
+ * collector, but the socket channels read into and write from them without
+ * an extra copy. Released buffers are kept up to a maximal number; larger
+ * buffers than the pooled size are allocated on demand and never pooled.
+ */
+public class DirectBufferPool {
+	/** the pool used by the channels */
+	public static final DirectBufferPool SHARED = new DirectBufferPool(64 * 1024, 256);
+
+	private final int bufferSize;
+	private final int maxPooled;
+	private final ConcurrentLinkedQueue<ByteBuffer> buffers = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger pooled = new AtomicInteger();
+
+	/**
+	 * @param bufferSize the capacity of the pooled buffers
+	 * @param maxPooled the maximal number of kept buffers
+	 */
+	public DirectBufferPool(int bufferSize, int maxPooled) {
+		this.bufferSize = bufferSize;
+		this.maxPooled = maxPooled;
+	}
+
+	public int getBufferSize() {
+		return bufferSize;
+	}
+
+	/**
+	 * @param minCapacity the needed capacity
+	 * @return a cleared direct buffer with at least the capacity
+	 */
+	public ByteBuffer acquire(int minCapacity) {
+		if(minCapacity > bufferSize) {
+			return ByteBuffer.allocateDirect(minCapacity);
+		}
+		ByteBuffer buffer = buffers.poll();
+		if(buffer == null) {
+			return ByteBuffer.allocateDirect(bufferSize);
+		}
+		pooled.decrementAndGet();
+		buffer.clear();
+		return buffer;
+	}
+
+	/**
+	 * Returns the buffer to the pool. It must not be used afterwards.
+	 */
+	public void release(ByteBuffer buffer) {
+		if(buffer.capacity() != bufferSize || !buffer.isDirect()) {
+			return;
+		}
+		if(pooled.incrementAndGet() > maxPooled) {
+			pooled.decrementAndGet();
+			return;
+		}
+		buffers.offer(buffer);
+	}
+}
@@ -0,0 +1,100 @@
+package util;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creates the executors for the blocking per-connection handlers and for
+ * bounded CPU stages.
+ */
+public final class ExecutorFactory {
+
+	/**
+	 * A cached pool of platform threads, one thread per busy connection.
+	 */
+	public static final String CACHED = "cached";
+
+	/**
+	 * A new virtual thread per task. Requires a Java runtime with virtual
+	 * threads, otherwise a cached pool is used.
+	 */
+	public static final String VIRTUAL = "virtual";
+
+	private ExecutorFactory() {
+	}
+
+	/**
+	 * Creates the executor configured by the given property. A cached thread
+	 * pool is used if virtual threads are configured but not supported by the
+	 * Java runtime.
+	 *
+	 * @param config
+	 *            the configuration of the component
+	 * @param key
+	 *            the property containing the mode, {@value #CACHED} or
+	 *            {@value #VIRTUAL}
+	 * @return the executor
+	 */
+	public static ExecutorService create(Config config, String key) {
+		String mode = config.containsKey(key) ? config.getString(key).trim() : CACHED;
+
+		if(mode.equals(VIRTUAL)) {
+			ExecutorService executor = newVirtualThreadPerTaskExecutor();
+			if(executor != null) {
+				return executor;
+			}
+		} else if(!mode.equals(CACHED)) {
+			throw new IllegalArgumentException("Unknown executor mode " + mode + " for " + key);
+		}
+		return Executors.newCachedThreadPool();
+	}
+
+	/**
+	 * Creates a fixed pool for CPU bound work, which rejects tasks with a
+	 * {@link java.util.concurrent.RejectedExecutionException} if the queue
+	 * is full.
+	 *
+	 * @param threads
+	 *            the number of threads, 0 for one per available processor
+	 * @param queueSize
+	 *            the maximal number of waiting tasks
+	 * @return the executor
+	 */
+	public static ExecutorService createBounded(int threads, int queueSize) {
+		if(threads <= 0) {
+			threads = Runtime.getRuntime().availableProcessors();
+		}
+		return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<Runnable>(queueSize));
+	}
+
+	/**
+	 * Creates a fixed pool for delayed tasks. Cancelled tasks are removed
+	 * from its queue at once.
+	 *
+	 * @param threads
+	 *            the number of threads running the tasks
+	 * @return the executor
+	 */
+	public static ScheduledExecutorService createScheduled(int threads) {
+		ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(Math.max(threads, 1));
+		executor.setRemoveOnCancelPolicy(true);
+		return executor;
+	}
+
+	private static ExecutorService newVirtualThreadPerTaskExecutor() {
+		try {
+			// looked up at runtime, so the project still compiles for older Java versions
+			Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) method.invoke(null);
+		} catch (ReflectiveOperationException e) {
+			return null;
+		}
+	}
+}
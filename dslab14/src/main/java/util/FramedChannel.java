@@ -0,0 +1,167 @@
+package util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.Socket;
+
+/**
+ * Binary {@link Channel}, which sends every message as a frame of its length
+ * (4 bytes, big endian) followed by the bytes of the message. Messages may
+ * contain any bytes, so they need neither Base64 encoding nor the conversion
+ * to Strings.
+ */
+public class FramedChannel implements Channel {
+	/** the maximal length of a frame */
+	public static final int MAX_FRAME_LENGTH = 1024 * 1024 - 4;
+	/** appended to the handshake messages to agree on binary frames for the secure channel */
+	public static final String NEGOTIATION_TOKEN = "binary";
+
+	private Socket socket;
+	private DataInputStream input;
+	private DataOutputStream output;
+	private boolean isConnected;
+	private boolean buffered;
+
+	public FramedChannel() { }
+
+	public FramedChannel(Socket socket)
+	{
+		this(socket, false);
+	}
+
+	/**
+	 * @param socket the connected socket
+	 * @param buffered if true, sent messages are buffered until
+	 *            {@link #flush()} or the next read which would block
+	 */
+	public FramedChannel(Socket socket, boolean buffered)
+	{
+		this.socket = socket;
+		this.buffered = buffered;
+		isConnected = initializeStreams();
+	}
+
+	@Override
+	public boolean connect(String host, int port) {
+		try {
+			socket = new Socket(host, port);
+		} catch (IOException e) {
+			return false;
+		}
+		isConnected = initializeStreams();
+		return isConnected;
+	}
+
+	private boolean initializeStreams()
+	{
+		try {
+			input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+		} catch (IOException e) {
+			return false;
+		}
+		return true;
+	}
+
+	@Override
+	public boolean isConnected() {
+		return isConnected;
+	}
+
+	@Override
+	public void close() {
+		if(isConnected)
+		{
+			try {
+				output.flush();
+			} catch (IOException e) { }
+			try {
+				socket.close();
+			} catch (IOException e) { }
+		}
+		isConnected = false;
+	}
+
+	@Override
+	public void sendMessage(String msg) throws NotConnectedException {
+		sendMessage(msg.getBytes());
+	}
+
+	@Override
+	public void sendMessage(byte[] msg) throws NotConnectedException {
+		if(!isConnected)
+			throw new NotConnectedException();
+		try {
+			output.writeInt(msg.length);
+			output.write(msg);
+			if(!buffered)
+				output.flush();
+		} catch (IOException e) {
+			close();
+			throw new NotConnectedException(e.getMessage());
+		}
+	}
+
+	@Override
+	public void flush() throws NotConnectedException {
+		if(!isConnected)
+			throw new NotConnectedException();
+		try {
+			output.flush();
+		} catch (IOException e) {
+			close();
+			throw new NotConnectedException(e.getMessage());
+		}
+	}
+
+	@Override
+	public String readMessage() throws IOException, NotConnectedException {
+		byte[] msg = readByteMessage();
+		if(msg == null)
+			return null;
+		else
+			return new String(msg);
+	}
+
+	/**
+	 * Reads the next frame.
+	 * 
+	 * @return the message or null, if the connection was closed
+	 * @throws IOException if the connection failed or the frame is too long
+	 */
+	@Override
+	public byte[] readByteMessage() throws IOException, NotConnectedException {
+		if(!isConnected)
+			throw new NotConnectedException();
+		if(buffered && !isFrameAvailable())
+			flush();
+		int length;
+		try {
+			length = input.readInt();
+		} catch (EOFException e) {
+			return null;
+		}
+		if(length < 0 || length > MAX_FRAME_LENGTH)
+			throw new IOException("invalid frame length " + length);
+		byte[] msg = new byte[length];
+		input.readFully(msg);
+		return msg;
+	}
+
+	/**
+	 * @return true, if the next frame can be read without blocking
+	 */
+	private boolean isFrameAvailable() throws IOException {
+		if(input.available() < 4)
+			return false;
+		input.mark(4);
+		int length = input.readInt();
+		input.reset();
+		// an invalid length fails the read without blocking
+		return length < 0 || input.available() - 4L >= length;
+	}
+}
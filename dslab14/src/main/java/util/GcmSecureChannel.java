@@ -0,0 +1,186 @@
+package util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * {@link Channel} which encrypts and authenticates every message with
+ * AES-GCM in one pass.
+ * <p/>
+ * Both peers use the same key. The nonce of a message is the first 12 bytes
+ * of the IV of the session, with the direction of the message in its first
+ * byte and the number of the message in that direction in its last 8 bytes.
+ * The number is not sent, as the underlying channel delivers the messages in
+ * order, so every nonce is used only once, and a replayed, dropped or
+ * reordered message fails the authentication like a modified one. A message
+ * which fails the authentication closes the channel.
+ * <p/>
+ * On a {@link BufferChannel} messages are encrypted into pooled direct
+ * buffers and decrypted in the read buffer of the channel.
+ */
+public class GcmSecureChannel implements Channel {
+	/** appended to the handshake messages to agree on this channel instead of {@link SecureChannel} */
+	public static final String NEGOTIATION_TOKEN = "gcm";
+
+	private static final String ALGORITHM = "AES/GCM/NoPadding";
+	private static final int NONCE_LENGTH = 12;
+	private static final int TAG_LENGTH = 128;
+
+	private final Channel channel;
+	private final SecretKey secretKey;
+	private final Cipher encryptCipher;
+	private final Cipher decryptCipher;
+	private final byte[] sendNonce;
+	private final byte[] receiveNonce;
+	private final ReentrantLock sendLock = new ReentrantLock();
+	private long sendCounter;
+	private long receiveCounter;
+
+	public GcmSecureChannel(Channel channel, byte[] secretKey, byte[] ivParam, boolean client) throws GeneralSecurityException
+	{
+		this(channel, new SecretKeySpec(secretKey, "AES"), ivParam, client);
+	}
+
+	/**
+	 * @param channel the channel for the encrypted messages, which must be
+	 *            able to carry any bytes
+	 * @param secretKey the AES key of the session
+	 * @param ivParam the IV of the session, at least 12 bytes
+	 * @param client true on the side which opened the connection, the peers
+	 *            must use different values
+	 * @throws GeneralSecurityException if AES-GCM is not available
+	 */
+	public GcmSecureChannel(Channel channel, SecretKey secretKey, byte[] ivParam, boolean client) throws GeneralSecurityException
+	{
+		this.channel = channel;
+		this.secretKey = secretKey;
+		this.encryptCipher = Cipher.getInstance(ALGORITHM);
+		this.decryptCipher = Cipher.getInstance(ALGORITHM);
+		this.sendNonce = directionNonce(ivParam, client ? 0 : 1);
+		this.receiveNonce = directionNonce(ivParam, client ? 1 : 0);
+	}
+
+	private static byte[] directionNonce(byte[] ivParam, int direction) {
+		byte[] nonce = new byte[NONCE_LENGTH];
+		System.arraycopy(ivParam, 0, nonce, 0, NONCE_LENGTH);
+		nonce[0] ^= direction;
+		return nonce;
+	}
+
+	private static GCMParameterSpec nonce(byte[] directionNonce, long counter) {
+		byte[] nonce = directionNonce.clone();
+		for (int i = NONCE_LENGTH - 1; i >= NONCE_LENGTH - 8; i--) {
+			nonce[i] ^= (byte) counter;
+			counter >>>= 8;
+		}
+		return new GCMParameterSpec(TAG_LENGTH, nonce);
+	}
+
+	@Override
+	public boolean connect(String host, int port) {
+		return channel.connect(host, port);
+	}
+
+	@Override
+	public boolean isConnected() {
+		return channel.isConnected();
+	}
+
+	@Override
+	public void close() {
+		channel.close();
+	}
+
+	@Override
+	public void sendMessage(String msg) throws NotConnectedException {
+		sendMessage(msg.getBytes());
+	}
+
+	@Override
+	public void sendMessage(byte[] msg) throws NotConnectedException {
+		// the messages must be sent in the order of their nonces
+		sendLock.lock();
+		try {
+			encryptCipher.init(Cipher.ENCRYPT_MODE, secretKey, nonce(sendNonce, sendCounter++));
+			if(channel instanceof BufferChannel) {
+				// encrypt into a direct buffer, which the socket writes without copying
+				ByteBuffer encryptedMsg = DirectBufferPool.SHARED.acquire(encryptCipher.getOutputSize(msg.length));
+				try {
+					encryptCipher.doFinal(ByteBuffer.wrap(msg), encryptedMsg);
+					encryptedMsg.flip();
+					((BufferChannel) channel).sendMessage(encryptedMsg);
+				} finally {
+					DirectBufferPool.SHARED.release(encryptedMsg);
+				}
+			} else {
+				channel.sendMessage(encryptCipher.doFinal(msg));
+			}
+		} catch (GeneralSecurityException e) {
+			throw new IllegalStateException("cannot encrypt message", e);
+		} finally {
+			sendLock.unlock();
+		}
+	}
+
+	@Override
+	public void flush() throws NotConnectedException {
+		channel.flush();
+	}
+
+	@Override
+	public String readMessage() throws IOException, NotConnectedException {
+		byte[] readMessage = readByteMessage();
+		if(readMessage == null)
+			return null;
+		else
+			return new String(readMessage);
+	}
+
+	/**
+	 * @throws IOException if the message was modified, replayed or is out of
+	 *             order; the channel is closed
+	 */
+	@Override
+	public byte[] readByteMessage() throws IOException, NotConnectedException {
+		if(channel instanceof BufferChannel)
+			return readInPlace((BufferChannel) channel);
+		byte[] readMsg = channel.readByteMessage();
+		if(readMsg == null)
+			return null;
+		try {
+			decryptCipher.init(Cipher.DECRYPT_MODE, secretKey, nonce(receiveNonce, receiveCounter++));
+			return decryptCipher.doFinal(readMsg);
+		} catch (GeneralSecurityException e) {
+			close();
+			throw new IOException("message authentication failed", e);
+		}
+	}
+
+	/**
+	 * Decrypts the message in the read buffer of the channel.
+	 */
+	private byte[] readInPlace(BufferChannel bufferChannel) throws IOException, NotConnectedException {
+		ByteBuffer readMsg = bufferChannel.readBufferMessage();
+		if(readMsg == null)
+			return null;
+		try {
+			decryptCipher.init(Cipher.DECRYPT_MODE, secretKey, nonce(receiveNonce, receiveCounter++));
+			ByteBuffer decryptedMsg = readMsg.duplicate();
+			decryptCipher.doFinal(readMsg, decryptedMsg);
+			decryptedMsg.flip();
+			byte[] msg = new byte[decryptedMsg.remaining()];
+			decryptedMsg.get(msg);
+			return msg;
+		} catch (GeneralSecurityException e) {
+			close();
+			throw new IOException("message authentication failed", e);
+		}
+	}
+}
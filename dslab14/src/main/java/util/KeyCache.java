@@ -0,0 +1,67 @@
+package util;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the keys read by {@link Keys} in memory.
+ * <p/>
+ * A PEM file is parsed once and read again only when its modification time
+ * or size changed, so replaced keys are picked up without a restart. Keys of
+ * deleted files are dropped.
+ */
+public class KeyCache {
+
+	private final ConcurrentHashMap<File, CachedKey> privateKeys = new ConcurrentHashMap<>();
+	private final ConcurrentHashMap<File, CachedKey> publicKeys = new ConcurrentHashMap<>();
+
+	/**
+	 * @param file the PEM file of the private key
+	 * @return the private key
+	 * @throws IOException if the file does not exist or cannot be read
+	 */
+	public PrivateKey getPrivateKey(File file) throws IOException {
+		return (PrivateKey) get(privateKeys, file, true);
+	}
+
+	/**
+	 * @param file the PEM file of the public key
+	 * @return the public key
+	 * @throws IOException if the file does not exist or cannot be read
+	 */
+	public PublicKey getPublicKey(File file) throws IOException {
+		return (PublicKey) get(publicKeys, file, false);
+	}
+
+	private Object get(ConcurrentHashMap<File, CachedKey> keys, File file, boolean privateKey) throws IOException {
+		long lastModified = file.lastModified();
+		long length = file.length();
+		if(lastModified == 0 && !file.exists()) {
+			keys.remove(file);
+			throw new FileNotFoundException("key " + file + " does not exist");
+		}
+		CachedKey cached = keys.get(file);
+		if(cached == null || cached.lastModified != lastModified || cached.length != length) {
+			Object key = privateKey ? Keys.readPrivatePEM(file) : Keys.readPublicPEM(file);
+			cached = new CachedKey(key, lastModified, length);
+			keys.put(file, cached);
+		}
+		return cached.key;
+	}
+
+	private static class CachedKey {
+		private final Object key;
+		private final long lastModified;
+		private final long length;
+
+		CachedKey(Object key, long lastModified, long length) {
+			this.key = key;
+			this.lastModified = lastModified;
+			this.length = length;
+		}
+	}
+}
@@ -0,0 +1,71 @@
+package util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of latencies with one bucket per power of two microseconds.
+ * <p/>
+ * Recording increments a single bucket and never locks, so it can be used
+ * on every message. Percentiles are the upper bound of the bucket they fall
+ * into, which is exact to a factor of two.
+ */
+public class LatencyHistogram {
+
+	private static final int BUCKETS = 40;
+
+	/** bucket i counts the latencies from 2^(i-1) to 2^i - 1 microseconds */
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+	private final LongAdder count = new LongAdder();
+	private final LongAdder sum = new LongAdder();
+
+	/**
+	 * @param nanos the latency in nanoseconds
+	 */
+	public void record(long nanos) {
+		long micros = TimeUnit.NANOSECONDS.toMicros(Math.max(nanos, 0));
+		int bucket = Math.min(64 - Long.numberOfLeadingZeros(micros), BUCKETS - 1);
+		buckets.incrementAndGet(bucket);
+		count.increment();
+		sum.add(micros);
+	}
+
+	public long getCount() {
+		return count.sum();
+	}
+
+	/**
+	 * @return the mean latency in microseconds, or 0 if none was recorded
+	 */
+	public long getMean() {
+		long n = count.sum();
+		return n == 0 ? 0 : sum.sum() / n;
+	}
+
+	/**
+	 * @param percentile the percentile, from 1 to 100
+	 * @return the latency in microseconds which the given percentage of the
+	 *         recorded latencies did not exceed, or 0 if none was recorded
+	 */
+	public long getPercentile(int percentile) {
+		long[] counts = new long[BUCKETS];
+		long total = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			counts[i] = buckets.get(i);
+			total += counts[i];
+		}
+		if(total == 0) {
+			return 0;
+		}
+		long rank = Math.max((total * percentile + 99) / 100, 1);
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts[i];
+			if(seen >= rank) {
+				return (1L << i) - 1;
+			}
+		}
+		return (1L << (BUCKETS - 1)) - 1;
+	}
+}
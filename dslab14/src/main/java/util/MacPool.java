@@ -0,0 +1,70 @@
+package util;
+
+import java.security.InvalidKeyException;
+import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import javax.crypto.Mac;
+
+/**
+ * Thread-safe HMAC computation for the messages between cloud controller and
+ * nodes.
+ * <p/>
+ * A {@link Mac} keeps state between {@code update} and {@code doFinal}, so it
+ * must not be shared by concurrent threads. The pool hands out one initialized
+ * instance per caller and takes it back afterwards; instances are cloned from
+ * a prototype, so the key is only processed once.
+ */
+public class MacPool {
+
+	public static final String ALGORITHM = "HmacSHA256";
+
+	private final Mac prototype;
+	private final ConcurrentLinkedQueue<Mac> idle = new ConcurrentLinkedQueue<>();
+
+	/**
+	 * @param secretKey the shared secret key, e.g. read by {@link Keys#readSecretKey(java.io.File)}
+	 * @throws NoSuchAlgorithmException if {@value #ALGORITHM} is not supported
+	 * @throws InvalidKeyException if the key cannot be used for {@value #ALGORITHM}
+	 */
+	public MacPool(Key secretKey) throws NoSuchAlgorithmException, InvalidKeyException {
+		prototype = Mac.getInstance(ALGORITHM);
+		prototype.init(secretKey);
+	}
+
+	/**
+	 * @param message the message to sign
+	 * @return the HMAC of the message
+	 */
+	public byte[] sign(byte[] message) {
+		Mac mac = borrow();
+		try {
+			return mac.doFinal(message);
+		} finally {
+			idle.offer(mac);
+		}
+	}
+
+	/**
+	 * @param message the received message
+	 * @param receivedHash the received HMAC of the message
+	 * @return true, if the HMAC matches the message
+	 */
+	public boolean verify(byte[] message, byte[] receivedHash) {
+		return MessageDigest.isEqual(sign(message), receivedHash);
+	}
+
+	private Mac borrow() {
+		Mac mac = idle.poll();
+		if(mac != null) {
+			return mac;
+		}
+		try {
+			return (Mac) prototype.clone();
+		} catch (CloneNotSupportedException e) {
+			throw new IllegalStateException("Mac " + ALGORITHM + " cannot be cloned", e);
+		}
+	}
+}
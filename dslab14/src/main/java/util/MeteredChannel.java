@@ -0,0 +1,130 @@
+package util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Decorator which records the traffic of a {@link Channel} in
+ * {@link ChannelMetrics}.
+ * <p/>
+ * The bytes are the lengths of the messages passed through this channel,
+ * without line breaks or frame headers added below. A message read or sent
+ * as String is counted with its number of characters. Use {@link #wrap} to
+ * keep a {@link BufferChannel} able to hand out its buffers.
+ */
+public class MeteredChannel implements SwitchableChannel {
+
+	protected final Channel channel;
+	protected final ChannelMetrics metrics;
+
+	protected MeteredChannel(Channel channel, ChannelMetrics metrics) {
+		this.channel = channel;
+		this.metrics = metrics;
+	}
+
+	/**
+	 * @param channel the channel to measure
+	 * @param metrics the metrics to record into
+	 * @return the measuring channel, a {@link BufferChannel} if the channel is one
+	 */
+	public static MeteredChannel wrap(Channel channel, ChannelMetrics metrics) {
+		if(channel instanceof BufferChannel) {
+			return new MeteredBufferChannel((BufferChannel) channel, metrics);
+		}
+		return new MeteredChannel(channel, metrics);
+	}
+
+	public ChannelMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Switches the underlying channel and measures the returned channel with
+	 * the same metrics.
+	 */
+	@Override
+	public Channel switchToFrames() throws IOException {
+		if(!(channel instanceof SwitchableChannel))
+			throw new IOException("the channel cannot switch to frames");
+		return wrap(((SwitchableChannel) channel).switchToFrames(), metrics);
+	}
+
+	@Override
+	public boolean connect(String host, int port) {
+		return channel.connect(host, port);
+	}
+
+	@Override
+	public boolean isConnected() {
+		return channel.isConnected();
+	}
+
+	@Override
+	public void close() {
+		channel.close();
+	}
+
+	@Override
+	public void sendMessage(String msg) throws NotConnectedException {
+		long start = System.nanoTime();
+		channel.sendMessage(msg);
+		metrics.recordSent(msg.length(), System.nanoTime() - start);
+	}
+
+	@Override
+	public void sendMessage(byte[] msg) throws NotConnectedException {
+		long start = System.nanoTime();
+		channel.sendMessage(msg);
+		metrics.recordSent(msg.length, System.nanoTime() - start);
+	}
+
+	@Override
+	public void flush() throws NotConnectedException {
+		channel.flush();
+	}
+
+	@Override
+	public String readMessage() throws IOException, NotConnectedException {
+		long start = System.nanoTime();
+		String msg = channel.readMessage();
+		if(msg != null)
+			metrics.recordReceived(msg.length(), System.nanoTime() - start);
+		return msg;
+	}
+
+	@Override
+	public byte[] readByteMessage() throws IOException, NotConnectedException {
+		long start = System.nanoTime();
+		byte[] msg = channel.readByteMessage();
+		if(msg != null)
+			metrics.recordReceived(msg.length, System.nanoTime() - start);
+		return msg;
+	}
+
+	private static class MeteredBufferChannel extends MeteredChannel implements BufferChannel {
+
+		MeteredBufferChannel(BufferChannel channel, ChannelMetrics metrics) {
+			super(channel, metrics);
+		}
+
+		@Override
+		public ByteBuffer readBufferMessage() throws IOException, NotConnectedException {
+			long start = System.nanoTime();
+			ByteBuffer msg = ((BufferChannel) channel).readBufferMessage();
+			if(msg != null)
+				metrics.recordReceived(msg.remaining(), System.nanoTime() - start);
+			return msg;
+		}
+
+		@Override
+		public void sendMessage(ByteBuffer... parts) throws NotConnectedException {
+			int length = 0;
+			for (ByteBuffer part : parts) {
+				length += part.remaining();
+			}
+			long start = System.nanoTime();
+			((BufferChannel) channel).sendMessage(parts);
+			metrics.recordSent(length, System.nanoTime() - start);
+		}
+	}
+}
@@ -0,0 +1,345 @@
+package util;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Blocking {@link Channel} on a {@link SocketChannel}, which reads into a
+ * pooled direct buffer and writes every message with one gathering write.
+ * <p/>
+ * Received messages are handed out by {@link #readBufferMessage()} as slices
+ * of the read buffer, so a {@link SecureChannel} or {@link GcmSecureChannel}
+ * on top can decrypt them in place without intermediate arrays or Strings.
+ * A slice stays valid until the next read on the channel, so the read buffer
+ * is only returned to the pool by the reading thread. The channel reads lines
+ * until {@link #switchToFrames()}, and the length prefixed frames of
+ * {@link FramedChannel} afterwards.
+ */
+public class NioChannel implements SwitchableChannel, BufferChannel {
+	private static final int MAX_BUFFER_SIZE = 1024 * 1024;
+	private static final byte[] NEWLINE = { '\n' };
+
+	private SocketChannel socketChannel;
+	private volatile boolean isConnected;
+	private volatile boolean framed;
+
+	/** received data lies between readStart and the position */
+	private ByteBuffer readBuffer;
+	private int readStart;
+	private int scanned;
+	private ReentrantLock readLock = new ReentrantLock();
+
+	private final ByteBuffer header = ByteBuffer.allocateDirect(4);
+	private final ByteBuffer newline = ByteBuffer.allocateDirect(1).put(NEWLINE);
+	private final ReentrantLock sendLock = new ReentrantLock();
+
+	public NioChannel() { }
+
+	/**
+	 * @param socketChannel the accepted connection
+	 */
+	public NioChannel(SocketChannel socketChannel) throws IOException
+	{
+		this.socketChannel = socketChannel;
+		socketChannel.configureBlocking(true);
+		isConnected = true;
+	}
+
+	@Override
+	public boolean connect(String host, int port) {
+		try {
+			socketChannel = SocketChannel.open(new InetSocketAddress(host, port));
+			socketChannel.socket().setTcpNoDelay(true);
+		} catch (IOException e) {
+			return false;
+		}
+		isConnected = true;
+		return true;
+	}
+
+	@Override
+	public boolean isConnected() {
+		return isConnected;
+	}
+
+	@Override
+	public void close() {
+		isConnected = false;
+		try {
+			socketChannel.close();
+		} catch (IOException e) { }
+		// the read buffer is released by the reading thread, which may still
+		// use the last message in it; if nobody reads any more, it is left to
+		// the garbage collector
+	}
+
+	/**
+	 * Reads frames instead of lines from now on. The returned channel sends
+	 * frames, both read the next frame.
+	 */
+	@Override
+	public Channel switchToFrames() throws IOException {
+		if(!isConnected)
+			throw new IOException("not connected");
+		framed = true;
+		return new FrameView();
+	}
+
+	@Override
+	public void sendMessage(String msg) throws NotConnectedException {
+		sendMessage(msg.getBytes());
+	}
+
+	@Override
+	public void sendMessage(byte[] msg) throws NotConnectedException {
+		sendMessage(ByteBuffer.wrap(msg));
+	}
+
+	/**
+	 * Sends the parts followed by a line break.
+	 */
+	@Override
+	public void sendMessage(ByteBuffer... parts) throws NotConnectedException {
+		ByteBuffer[] buffers = new ByteBuffer[parts.length + 1];
+		System.arraycopy(parts, 0, buffers, 0, parts.length);
+		sendLock.lock();
+		try {
+			newline.clear();
+			buffers[parts.length] = newline;
+			write(buffers);
+		} finally {
+			sendLock.unlock();
+		}
+	}
+
+	private void sendFrame(ByteBuffer... parts) throws NotConnectedException {
+		long length = 0;
+		for (ByteBuffer part : parts) {
+			length += part.remaining();
+		}
+		if(length > FramedChannel.MAX_FRAME_LENGTH)
+			throw new IllegalArgumentException("message too long");
+		ByteBuffer[] buffers = new ByteBuffer[parts.length + 1];
+		System.arraycopy(parts, 0, buffers, 1, parts.length);
+		sendLock.lock();
+		try {
+			header.clear();
+			header.putInt((int) length).flip();
+			buffers[0] = header;
+			write(buffers);
+		} finally {
+			sendLock.unlock();
+		}
+	}
+
+	private void write(ByteBuffer[] buffers) throws NotConnectedException {
+		if(!isConnected)
+			throw new NotConnectedException();
+		long remaining = 0;
+		for (ByteBuffer buffer : buffers) {
+			remaining += buffer.remaining();
+		}
+		try {
+			while (remaining > 0) {
+				remaining -= socketChannel.write(buffers);
+			}
+		} catch (IOException e) {
+			close();
+			throw new NotConnectedException(e.getMessage());
+		}
+	}
+
+	/**
+	 * Does nothing, every message is written at once.
+	 */
+	@Override
+	public void flush() throws NotConnectedException {
+		if(!isConnected)
+			throw new NotConnectedException();
+	}
+
+	@Override
+	public String readMessage() throws IOException, NotConnectedException {
+		byte[] msg = readByteMessage();
+		if(msg == null)
+			return null;
+		else
+			return new String(msg);
+	}
+
+	@Override
+	public byte[] readByteMessage() throws IOException, NotConnectedException {
+		ByteBuffer message = readBufferMessage();
+		if(message == null)
+			return null;
+		byte[] msg = new byte[message.remaining()];
+		message.get(msg);
+		return msg;
+	}
+
+	@Override
+	public ByteBuffer readBufferMessage() throws IOException, NotConnectedException {
+		readLock.lock();
+		try {
+			if(!isConnected) {
+				releaseReadBuffer();
+				throw new NotConnectedException();
+			}
+			if(readBuffer == null) {
+				readBuffer = DirectBufferPool.SHARED.acquire(DirectBufferPool.SHARED.getBufferSize());
+			}
+			while (true) {
+				ByteBuffer message = framed ? nextFrame() : nextLine();
+				if(message != null) {
+					return message;
+				}
+				makeRoom();
+				if(socketChannel.read(readBuffer) < 0) {
+					releaseReadBuffer();
+					return null;
+				}
+			}
+		} catch (IOException e) {
+			releaseReadBuffer();
+			if(!isConnected) {
+				// closed by another thread
+				return null;
+			}
+			throw e;
+		} finally {
+			readLock.unlock();
+		}
+	}
+
+	private ByteBuffer nextLine() {
+		int end = readBuffer.position();
+		for (int i = Math.max(scanned, readStart); i < end; i++) {
+			if(readBuffer.get(i) == '\n') {
+				int length = i - readStart;
+				if(length > 0 && readBuffer.get(i - 1) == '\r') {
+					length--;
+				}
+				ByteBuffer line = slice(readStart, length);
+				readStart = i + 1;
+				scanned = readStart;
+				return line;
+			}
+		}
+		scanned = end;
+		return null;
+	}
+
+	private ByteBuffer nextFrame() throws IOException {
+		int available = readBuffer.position() - readStart;
+		if(available < 4) {
+			return null;
+		}
+		int length = readBuffer.getInt(readStart);
+		if(length < 0 || length > FramedChannel.MAX_FRAME_LENGTH) {
+			throw new IOException("invalid frame length " + length);
+		}
+		if(available - 4 < length) {
+			return null;
+		}
+		ByteBuffer frame = slice(readStart + 4, length);
+		readStart += 4 + length;
+		return frame;
+	}
+
+	private ByteBuffer slice(int offset, int length) {
+		ByteBuffer slice = readBuffer.duplicate();
+		slice.limit(offset + length).position(offset);
+		return slice.slice();
+	}
+
+	/**
+	 * Moves the unread data to the start of the buffer and grows it, if it
+	 * is full.
+	 */
+	private void makeRoom() throws IOException {
+		if(readStart > 0) {
+			readBuffer.flip();
+			readBuffer.position(readStart);
+			readBuffer.compact();
+			scanned -= readStart;
+			readStart = 0;
+		}
+		if(!readBuffer.hasRemaining()) {
+			if(readBuffer.capacity() >= MAX_BUFFER_SIZE) {
+				throw new IOException("message too long");
+			}
+			ByteBuffer larger = ByteBuffer.allocateDirect(Math.min(readBuffer.capacity() * 2, MAX_BUFFER_SIZE));
+			readBuffer.flip();
+			larger.put(readBuffer);
+			DirectBufferPool.SHARED.release(readBuffer);
+			readBuffer = larger;
+		}
+	}
+
+	private void releaseReadBuffer() {
+		if(readBuffer != null) {
+			DirectBufferPool.SHARED.release(readBuffer);
+			readBuffer = null;
+			readStart = 0;
+			scanned = 0;
+		}
+	}
+
+	/**
+	 * Sends frames on the connection of the outer channel.
+	 */
+	private class FrameView implements BufferChannel {
+		@Override
+		public boolean connect(String host, int port) {
+			return false;
+		}
+
+		@Override
+		public boolean isConnected() {
+			return isConnected;
+		}
+
+		@Override
+		public void close() {
+			NioChannel.this.close();
+		}
+
+		@Override
+		public void sendMessage(String msg) throws NotConnectedException {
+			sendMessage(msg.getBytes());
+		}
+
+		@Override
+		public void sendMessage(byte[] msg) throws NotConnectedException {
+			sendFrame(ByteBuffer.wrap(msg));
+		}
+
+		@Override
+		public void sendMessage(ByteBuffer... parts) throws NotConnectedException {
+			sendFrame(parts);
+		}
+
+		@Override
+		public void flush() throws NotConnectedException {
+			NioChannel.this.flush();
+		}
+
+		@Override
+		public String readMessage() throws IOException, NotConnectedException {
+			return NioChannel.this.readMessage();
+		}
+
+		@Override
+		public byte[] readByteMessage() throws IOException, NotConnectedException {
+			return NioChannel.this.readByteMessage();
+		}
+
+		@Override
+		public ByteBuffer readBufferMessage() throws IOException, NotConnectedException {
+			return NioChannel.this.readBufferMessage();
+		}
+	}
+}
@@ -1,6 +1,8 @@
 package util;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
 import java.security.InvalidAlgorithmParameterException;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
@@ -13,19 +15,30 @@ import javax.crypto.SecretKey;
 import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
 
+/**
+ * {@link Channel} which encrypts every message with AES-CTR.
+ * <p/>
+ * On a {@link BufferChannel} messages are encrypted into pooled direct
+ * buffers and decrypted in place in the read buffer of the channel.
+ */
 public class SecureChannel implements Channel {
-	private Base64Channel base64Channel;
+	private Channel channel;
 	private Cipher decryptCipher;
 	private Cipher encryptCipher;
 	
-	public SecureChannel(Base64Channel channel, byte[] secretKey, byte[] ivParam)
+	/**
+	 * @param channel the channel for the encrypted messages, which must be
+	 *            able to carry any bytes, e.g. a {@link Base64Channel} or a
+	 *            {@link FramedChannel}
+	 */
+	public SecureChannel(Channel channel, byte[] secretKey, byte[] ivParam)
 	{
 		this(channel, new SecretKeySpec(secretKey, "AES"), ivParam);
 	}
 	
-	public SecureChannel(Base64Channel channel, SecretKey secretKey, byte[] ivParam)
+	public SecureChannel(Channel channel, SecretKey secretKey, byte[] ivParam)
 	{
-		this.base64Channel = channel;
+		this.channel = channel;
 		
 		try {
 			encryptCipher = Cipher.getInstance("AES/CTR/NoPadding");
@@ -46,17 +59,17 @@ public class SecureChannel implements Channel {
 	
 	@Override
 	public boolean connect(String host, int port) {
-		return base64Channel.connect(host, port);
+		return channel.connect(host, port);
 	}
 
 	@Override
 	public boolean isConnected() {
-		return base64Channel.isConnected();
+		return channel.isConnected();
 	}
 
 	@Override
 	public void close() {
-		base64Channel.close();
+		channel.close();
 	}
 
 	@Override
@@ -66,18 +79,40 @@ public class SecureChannel implements Channel {
 
 	@Override
 	public void sendMessage(byte[] msg) throws NotConnectedException {
+		if(channel instanceof BufferChannel) {
+			sendFromBuffer((BufferChannel) channel, msg);
+			return;
+		}
 		try {
 			byte[] encryptedMsg = encryptCipher.doFinal(msg);
-			base64Channel.sendMessage(encryptedMsg);
-		} catch (IllegalBlockSizeException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
-		} catch (BadPaddingException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
+			channel.sendMessage(encryptedMsg);
+		} catch (IllegalBlockSizeException | BadPaddingException e) {
+			// cannot happen without padding
+			throw new IllegalStateException("cannot encrypt message", e);
 		}
 	}
 
+	/**
+	 * Encrypts into a direct buffer, which the socket writes without copying.
+	 */
+	private void sendFromBuffer(BufferChannel bufferChannel, byte[] msg) throws NotConnectedException {
+		ByteBuffer encryptedMsg = DirectBufferPool.SHARED.acquire(msg.length);
+		try {
+			encryptCipher.doFinal(ByteBuffer.wrap(msg), encryptedMsg);
+			encryptedMsg.flip();
+			bufferChannel.sendMessage(encryptedMsg);
+		} catch (GeneralSecurityException e) {
+			throw new IllegalStateException("cannot encrypt message", e);
+		} finally {
+			DirectBufferPool.SHARED.release(encryptedMsg);
+		}
+	}
+
+	@Override
+	public void flush() throws NotConnectedException {
+		channel.flush();
+	}
+
 	@Override
 	public String readMessage() throws IOException, NotConnectedException {
 		byte[] readMessage = readByteMessage();
@@ -89,18 +124,34 @@ public class SecureChannel implements Channel {
 
 	@Override
 	public byte[] readByteMessage() throws IOException, NotConnectedException {
-		byte[] readMsg = base64Channel.readByteMessage();
+		if(channel instanceof BufferChannel)
+			return readInPlace((BufferChannel) channel);
+		byte[] readMsg = channel.readByteMessage();
 		if(readMsg == null)
 			return null;
 		try {
 			return decryptCipher.doFinal(readMsg);
-		} catch (IllegalBlockSizeException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
-		} catch (BadPaddingException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
+		} catch (IllegalBlockSizeException | BadPaddingException e) {
+			throw new IOException("cannot decrypt message", e);
+		}
+	}
+
+	/**
+	 * Decrypts the message in the read buffer of the channel.
+	 */
+	private byte[] readInPlace(BufferChannel bufferChannel) throws IOException, NotConnectedException {
+		ByteBuffer readMsg = bufferChannel.readBufferMessage();
+		if(readMsg == null)
+			return null;
+		try {
+			ByteBuffer decryptedMsg = readMsg.duplicate();
+			decryptCipher.doFinal(readMsg, decryptedMsg);
+			decryptedMsg.flip();
+			byte[] msg = new byte[decryptedMsg.remaining()];
+			decryptedMsg.get(msg);
+			return msg;
+		} catch (GeneralSecurityException e) {
+			throw new IOException("cannot decrypt message", e);
 		}
-		return null;
 	}
 }
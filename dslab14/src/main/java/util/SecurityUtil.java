@@ -1,24 +1,40 @@
 package util;
 
+import java.security.GeneralSecurityException;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 
 import javax.crypto.KeyGenerator;
+import javax.crypto.Mac;
 import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
 
 import org.bouncycastle.util.encoders.Base64;
 
 public class SecurityUtil {
+	// SecureRandom is thread safe, KeyGenerator is not
+	private static final SecureRandom SECURE_RANDOM = new SecureRandom();
+	private static final ThreadLocal<KeyGenerator> AES_KEY_GENERATOR = new ThreadLocal<KeyGenerator>() {
+		@Override
+		protected KeyGenerator initialValue() {
+			try {
+				KeyGenerator generator = KeyGenerator.getInstance("AES");
+				generator.init(256, SECURE_RANDOM);
+				return generator;
+			} catch (NoSuchAlgorithmException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+	};
+	
 	/**
-	 * Creates a 32 byte random number.
+	 * Creates a random number of the given size.
 	 * @return The created number.
 	 */
 	public static byte[] createRandom(int size)
 	{
-		// generates a 32 byte secure random number
-		SecureRandom secureRandom = new SecureRandom();
 		final byte[] number = new byte[size];
-		secureRandom.nextBytes(number);
+		SECURE_RANDOM.nextBytes(number);
 		return number;
 	}
 	
@@ -32,16 +48,32 @@ public class SecurityUtil {
 	
 	public static SecretKey createAESKey()
 	{
-		KeyGenerator generator = null;
-		try {
-			generator = KeyGenerator.getInstance("AES");
-		} catch (NoSuchAlgorithmException e) { }
-		generator.init(256);
-		return generator.generateKey();
+		return AES_KEY_GENERATOR.get().generateKey();
 	}
 	
 	public static byte[] createIVParam()
 	{
 		return createRandom(16);
 	}
+	
+	/**
+	 * Derives key material of a resumed session from the secret of a session
+	 * ticket and the nonces of client and controller.
+	 * 
+	 * @param label distinguishes the derived values, e.g. key and iv
+	 * @return 32 bytes of HMAC-SHA256 over the label and the nonces
+	 */
+	public static byte[] deriveKeyMaterial(byte[] secret, String label, byte[] clientNonce, byte[] serverNonce)
+	{
+		try {
+			Mac mac = Mac.getInstance("HmacSHA256");
+			mac.init(new SecretKeySpec(secret, "HmacSHA256"));
+			mac.update(label.getBytes());
+			mac.update(clientNonce);
+			mac.update(serverNonce);
+			return mac.doFinal();
+		} catch (GeneralSecurityException e) {
+			throw new IllegalStateException(e);
+		}
+	}
 }
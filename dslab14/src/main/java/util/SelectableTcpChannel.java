@@ -0,0 +1,454 @@
+package util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Line based {@link Channel} on top of a non-blocking {@link SocketChannel}.
+ * <p/>
+ * The channel does not own a thread. A selector loop calls
+ * {@link #onReadable()} and {@link #onWritable()} when the socket is ready,
+ * complete lines are queued and announced to the {@link MessageListener}.
+ * {@link #readMessage()} only returns queued lines and never blocks on the
+ * socket, so it must only be called after the listener was notified.
+ * <p/>
+ * At most {@value #MAX_QUEUED_MESSAGES} received messages are queued, plus
+ * the ones which were already in the read buffer. While the queue is full
+ * the socket is not read, so a client sending faster than its messages are
+ * processed is held back by TCP flow control.
+ * <p/>
+ * After {@link #switchToFrames()} the received bytes are split into the
+ * length prefixed frames of {@link FramedChannel} instead of lines.
+ * <p/>
+ * In buffered mode sent messages are only queued, {@link #flush()} writes
+ * all of them with one gathering write.
+ */
+public class SelectableTcpChannel implements SwitchableChannel {
+	private static final int INITIAL_BUFFER_SIZE = 1024;
+	private static final int MAX_BUFFER_SIZE = 1024 * 1024;
+	private static final int MAX_QUEUED_MESSAGES = 32;
+
+	private SocketChannel socketChannel;
+	private SelectionKey selectionKey;
+	private MessageListener listener;
+
+	private ByteBuffer readBuffer;
+	private ConcurrentLinkedQueue<byte[]> receivedMessages = new ConcurrentLinkedQueue<>();
+	private AtomicInteger queuedMessages = new AtomicInteger();
+	private ArrayDeque<ByteBuffer> pendingWrites = new ArrayDeque<>();
+	private ReentrantLock writeLock = new ReentrantLock();
+	private ReentrantLock interestLock = new ReentrantLock();
+	private volatile boolean readPaused;
+	private volatile boolean isConnected;
+	private volatile boolean framed;
+	private final boolean buffered;
+
+	public SelectableTcpChannel(SocketChannel socketChannel) throws IOException {
+		this(socketChannel, false);
+	}
+
+	/**
+	 * @param socketChannel the accepted connection
+	 * @param buffered if true, sent messages are queued until {@link #flush()}
+	 */
+	public SelectableTcpChannel(SocketChannel socketChannel, boolean buffered) throws IOException {
+		this.socketChannel = socketChannel;
+		this.buffered = buffered;
+		socketChannel.configureBlocking(false);
+		isConnected = true;
+	}
+
+	/**
+	 * @param selectionKey the key of the channel, registered for {@link SelectionKey#OP_READ}
+	 */
+	public void setSelectionKey(SelectionKey selectionKey) {
+		this.selectionKey = selectionKey;
+	}
+
+	public SocketChannel getSocketChannel() {
+		return socketChannel;
+	}
+
+	public void setMessageListener(MessageListener listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * @return true, if a message was received or the connection was closed
+	 */
+	public boolean hasMessage() {
+		return !receivedMessages.isEmpty() || !isConnected;
+	}
+
+	/**
+	 * Reads all available bytes from the socket and queues complete messages,
+	 * until the queue is full. Called by the selector loop only.
+	 */
+	public void onReadable() {
+		boolean received = false;
+		try {
+			if(readBuffer == null) {
+				readBuffer = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+			}
+			int read = 0;
+			while (queuedMessages.get() < MAX_QUEUED_MESSAGES && (read = socketChannel.read(readBuffer)) > 0) {
+				received |= framed ? extractFrames() : extractLines();
+				if(!readBuffer.hasRemaining()) {
+					if(readBuffer.capacity() >= MAX_BUFFER_SIZE) {
+						throw new IOException("message too long");
+					}
+					ByteBuffer larger = ByteBuffer.allocate(readBuffer.capacity() * 2);
+					readBuffer.flip();
+					larger.put(readBuffer);
+					readBuffer = larger;
+				}
+			}
+			if(read < 0) {
+				close();
+			} else {
+				if(queuedMessages.get() >= MAX_QUEUED_MESSAGES) {
+					pauseReading();
+				}
+				if(readBuffer.position() == 0) {
+					// idle connections do not keep a buffer
+					readBuffer = null;
+				}
+			}
+		} catch (IOException e) {
+			close();
+		}
+		if((received || !isConnected) && listener != null) {
+			listener.messageAvailable(this);
+		}
+	}
+
+	/**
+	 * Stops reading from the socket until {@link #readByteMessage()} made
+	 * room in the queue.
+	 */
+	private void pauseReading() {
+		interestLock.lock();
+		try {
+			readPaused = true;
+			updateInterestOps(0, SelectionKey.OP_READ);
+		} finally {
+			interestLock.unlock();
+		}
+		// the queue may have been drained before reading was paused
+		if(queuedMessages.get() < MAX_QUEUED_MESSAGES) {
+			resumeReading();
+		}
+	}
+
+	private void resumeReading() {
+		interestLock.lock();
+		try {
+			if(readPaused) {
+				readPaused = false;
+				updateInterestOps(SelectionKey.OP_READ, 0);
+				selectionKey.selector().wakeup();
+			}
+		} finally {
+			interestLock.unlock();
+		}
+	}
+
+	/**
+	 * Changes the interest set of the key. The reading and the writing
+	 * side change it from different threads, each only its own operation.
+	 */
+	private void updateInterestOps(int add, int remove) {
+		interestLock.lock();
+		try {
+			if(selectionKey.isValid()) {
+				selectionKey.interestOps((selectionKey.interestOps() | add) & ~remove);
+			}
+		} catch (CancelledKeyException e) {
+			// the channel was closed meanwhile
+		} finally {
+			interestLock.unlock();
+		}
+	}
+
+	private boolean extractLines() {
+		boolean found = false;
+		int start = 0;
+		int end = readBuffer.position();
+		byte[] array = readBuffer.array();
+
+		for (int i = 0; i < end; i++) {
+			if(array[i] == '\n') {
+				int length = i - start;
+				if(length > 0 && array[i - 1] == '\r') {
+					length--;
+				}
+				byte[] line = new byte[length];
+				System.arraycopy(array, start, line, 0, length);
+				queuedMessages.incrementAndGet();
+				receivedMessages.add(line);
+				start = i + 1;
+				found = true;
+			}
+		}
+		if(start > 0) {
+			readBuffer.flip();
+			readBuffer.position(start);
+			readBuffer.compact();
+		}
+		return found;
+	}
+
+	private boolean extractFrames() throws IOException {
+		boolean found = false;
+		int start = 0;
+		int end = readBuffer.position();
+
+		while (end - start >= 4) {
+			int length = readBuffer.getInt(start);
+			if(length < 0 || length > FramedChannel.MAX_FRAME_LENGTH) {
+				throw new IOException("invalid frame length " + length);
+			}
+			if(end - start - 4 < length) {
+				break;
+			}
+			byte[] frame = new byte[length];
+			System.arraycopy(readBuffer.array(), start + 4, frame, 0, length);
+			queuedMessages.incrementAndGet();
+			receivedMessages.add(frame);
+			start += 4 + length;
+			found = true;
+		}
+		if(start > 0) {
+			readBuffer.flip();
+			readBuffer.position(start);
+			readBuffer.compact();
+		}
+		return found;
+	}
+
+	/**
+	 * Writes pending data to the socket. Called by the selector loop only.
+	 */
+	public void onWritable() {
+		writeLock.lock();
+		try {
+			writePending();
+			if(pendingWrites.isEmpty()) {
+				updateInterestOps(0, SelectionKey.OP_WRITE);
+			}
+		} catch (IOException e) {
+			close();
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	private void writePending() throws IOException {
+		while (!pendingWrites.isEmpty()) {
+			if(pendingWrites.size() == 1) {
+				socketChannel.write(pendingWrites.peek());
+			} else {
+				socketChannel.write(pendingWrites.toArray(new ByteBuffer[pendingWrites.size()]));
+			}
+			ByteBuffer buffer;
+			while ((buffer = pendingWrites.peek()) != null && !buffer.hasRemaining()) {
+				pendingWrites.poll();
+			}
+			if(buffer != null) {
+				// the socket buffer is full
+				return;
+			}
+		}
+	}
+
+	@Override
+	public boolean connect(String host, int port) {
+		// channels are created for accepted connections only
+		return false;
+	}
+
+	@Override
+	public boolean isConnected() {
+		return isConnected;
+	}
+
+	@Override
+	public void close() {
+		if(isConnected && writeLock.tryLock()) {
+			// best effort for the last buffered messages, e.g. an error before closing
+			try {
+				writePending();
+			} catch (IOException e) {
+			} finally {
+				writeLock.unlock();
+			}
+		}
+		isConnected = false;
+		if(selectionKey != null) {
+			selectionKey.cancel();
+		}
+		try {
+			socketChannel.close();
+		} catch (IOException e) { }
+	}
+
+	@Override
+	public void sendMessage(String msg) throws NotConnectedException {
+		sendMessage(msg.getBytes());
+	}
+
+	@Override
+	public void sendMessage(byte[] msg) throws NotConnectedException {
+		if(!isConnected)
+			throw new NotConnectedException();
+
+		ByteBuffer buffer = ByteBuffer.allocate(msg.length + 1);
+		buffer.put(msg).put((byte) '\n').flip();
+		write(buffer);
+	}
+
+	private void write(ByteBuffer buffer) throws NotConnectedException {
+		writeLock.lock();
+		try {
+			pendingWrites.add(buffer);
+			if(!buffered) {
+				flushPending();
+			}
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	@Override
+	public void flush() throws NotConnectedException {
+		if(!isConnected)
+			throw new NotConnectedException();
+		writeLock.lock();
+		try {
+			flushPending();
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	private void flushPending() throws NotConnectedException {
+		try {
+			writePending();
+			if(!pendingWrites.isEmpty()) {
+				updateInterestOps(SelectionKey.OP_WRITE, 0);
+				selectionKey.selector().wakeup();
+			}
+		} catch (IOException e) {
+			close();
+			throw new NotConnectedException(e.getMessage());
+		}
+	}
+
+	@Override
+	public String readMessage() throws IOException, NotConnectedException {
+		byte[] line = readByteMessage();
+		if(line == null)
+			return null;
+		else
+			return new String(line);
+	}
+
+	/**
+	 * Returns the next received line or null, if no line is queued and the
+	 * connection was closed.
+	 */
+	@Override
+	public byte[] readByteMessage() throws IOException, NotConnectedException {
+		byte[] line = receivedMessages.poll();
+		if(line == null) {
+			if(isConnected)
+				throw new IOException("no message received yet");
+			return null;
+		}
+		if(queuedMessages.decrementAndGet() < MAX_QUEUED_MESSAGES && readPaused) {
+			resumeReading();
+		}
+		return line;
+	}
+
+	/**
+	 * Reads frames instead of lines from now on. The returned channel sends
+	 * frames, {@link #readByteMessage()} of both returns the next frame.
+	 */
+	@Override
+	public Channel switchToFrames() throws IOException {
+		if(!isConnected)
+			throw new IOException("not connected");
+		framed = true;
+		return new FrameWriter();
+	}
+
+	/**
+	 * Sends frames on the connection of the outer channel.
+	 */
+	private class FrameWriter implements Channel {
+		@Override
+		public boolean connect(String host, int port) {
+			return false;
+		}
+
+		@Override
+		public boolean isConnected() {
+			return isConnected;
+		}
+
+		@Override
+		public void close() {
+			SelectableTcpChannel.this.close();
+		}
+
+		@Override
+		public void sendMessage(String msg) throws NotConnectedException {
+			sendMessage(msg.getBytes());
+		}
+
+		@Override
+		public void sendMessage(byte[] msg) throws NotConnectedException {
+			if(!isConnected)
+				throw new NotConnectedException();
+
+			ByteBuffer buffer = ByteBuffer.allocate(msg.length + 4);
+			buffer.putInt(msg.length).put(msg).flip();
+			write(buffer);
+		}
+
+		@Override
+		public void flush() throws NotConnectedException {
+			SelectableTcpChannel.this.flush();
+		}
+
+		@Override
+		public String readMessage() throws IOException, NotConnectedException {
+			return SelectableTcpChannel.this.readMessage();
+		}
+
+		@Override
+		public byte[] readByteMessage() throws IOException, NotConnectedException {
+			return SelectableTcpChannel.this.readByteMessage();
+		}
+	}
+
+	/**
+	 * Is notified by the selector loop about received lines.
+	 */
+	public interface MessageListener {
+		/**
+		 * Called when at least one new line was queued or the connection was closed.
+		 *
+		 * @param channel the channel which received the lines
+		 */
+		void messageAvailable(SelectableTcpChannel channel);
+	}
+}
@@ -0,0 +1,21 @@
+package util;
+
+import java.io.IOException;
+
+/**
+ * A line based {@link Channel} whose connection can be switched to binary
+ * frames, which carry any bytes without Base64 encoding.
+ */
+public interface SwitchableChannel extends Channel {
+	/**
+	 * Switches the connection to binary frames. Every message received
+	 * afterwards is read as a frame. The returned channel sends and reads
+	 * frames on the same connection, while this channel still sends lines, so
+	 * the answer which announces the switch can be sent after it. The peer must
+	 * not send any frame before the switch.
+	 * 
+	 * @return the channel sending and receiving frames
+	 * @throws IOException if the connection cannot be switched
+	 */
+	Channel switchToFrames() throws IOException;
+}
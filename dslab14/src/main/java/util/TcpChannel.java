@@ -1,22 +1,47 @@
 package util;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
 import java.io.PrintWriter;
 import java.net.Socket;
 
-public class TcpChannel implements Channel {
+/**
+ * Line based {@link Channel} on top of a blocking {@link Socket}.
+ * <p/>
+ * Received bytes are collected in a buffer and split into lines by the
+ * channel itself, so it knows whether the next line is already complete.
+ * In buffered mode the sent messages are only flushed before a read which
+ * would block, not before every read.
+ */
+public class TcpChannel implements SwitchableChannel {
+	private static final int INITIAL_BUFFER_SIZE = 1024;
+
 	private Socket socket;
 	private PrintWriter writer;
-	private BufferedReader reader;
+	private InputStream input;
+	private byte[] readBuffer = new byte[INITIAL_BUFFER_SIZE];
+	private int readStart;
+	private int readEnd;
 	private boolean isConnected;
+	private boolean buffered;
 	
 	public TcpChannel() { }
 
 	public TcpChannel(Socket socket)
+	{
+		this(socket, false);
+	}
+	
+	/**
+	 * @param socket the connected socket
+	 * @param buffered if true, sent messages are buffered until
+	 *            {@link #flush()} or the next read which would block, so
+	 *            pipelined answers go out in one write
+	 */
+	public TcpChannel(Socket socket, boolean buffered)
 	{
 		this.socket = socket;
+		this.buffered = buffered;
 		boolean ok = initializeStreams();
 		if(ok)
 			isConnected = true;
@@ -41,8 +66,8 @@ public class TcpChannel implements Channel {
 	private boolean initializeStreams()
 	{
 		try {
-			reader = new BufferedReader(new InputStreamReader(socket.getInputStream()));
-			writer = new PrintWriter(socket.getOutputStream(), true);
+			input = socket.getInputStream();
+			writer = new PrintWriter(socket.getOutputStream(), !buffered);
 		} catch (IOException e) {
 			isConnected = false;
 			return false;
@@ -50,6 +75,17 @@ public class TcpChannel implements Channel {
 		return true;
 	}
 	
+	/**
+	 * Returns a {@link FramedChannel} on the socket of this channel. No line
+	 * must have been received after the last read line, as it would be lost.
+	 */
+	@Override
+	public Channel switchToFrames() throws IOException {
+		if(!isConnected)
+			throw new IOException("not connected");
+		return new FramedChannel(socket, buffered);
+	}
+	
 	@Override
 	public boolean isConnected() {
 		return isConnected;
@@ -60,8 +96,9 @@ public class TcpChannel implements Channel {
 		if(isConnected)
 		{
 			try {
+				writer.flush();
 				socket.close();
-				reader.close();
+				input.close();
 				writer.close();
 			} catch (IOException e) { }
 		}
@@ -83,13 +120,75 @@ public class TcpChannel implements Channel {
 	}
 
 	@Override
-	public String readMessage() throws IOException, NotConnectedException {
+	public void flush() throws NotConnectedException {
 		if(isConnected)
-			return reader.readLine();
+			writer.flush();
 		else
 			throw new NotConnectedException();
 	}
 
+	/**
+	 * Reads the next line, which is terminated by {@code \n} or
+	 * {@code \r\n}.
+	 * 
+	 * @return the line or null, if the connection was closed
+	 */
+	@Override
+	public String readMessage() throws IOException, NotConnectedException {
+		if(!isConnected)
+			throw new NotConnectedException();
+		while (true) {
+			for (int i = readStart; i < readEnd; i++) {
+				if(readBuffer[i] == '\n') {
+					int length = i - readStart;
+					if(length > 0 && readBuffer[i - 1] == '\r') {
+						length--;
+					}
+					String line = new String(readBuffer, readStart, length);
+					readStart = i + 1;
+					return line;
+				}
+			}
+			if(buffered && input.available() == 0) {
+				// the read blocks, the answers must not wait for the next request
+				writer.flush();
+			}
+			if(!fill()) {
+				if(readStart == readEnd) {
+					return null;
+				}
+				// the last line is not terminated
+				String line = new String(readBuffer, readStart, readEnd - readStart);
+				readStart = readEnd;
+				return line;
+			}
+		}
+	}
+
+	/**
+	 * Reads further bytes after the incomplete line in the buffer.
+	 * 
+	 * @return false, if the connection was closed
+	 */
+	private boolean fill() throws IOException {
+		if(readStart > 0) {
+			System.arraycopy(readBuffer, readStart, readBuffer, 0, readEnd - readStart);
+			readEnd -= readStart;
+			readStart = 0;
+		}
+		if(readEnd == readBuffer.length) {
+			byte[] larger = new byte[readBuffer.length * 2];
+			System.arraycopy(readBuffer, 0, larger, 0, readEnd);
+			readBuffer = larger;
+		}
+		int read = input.read(readBuffer, readEnd, readBuffer.length - readEnd);
+		if(read < 0) {
+			return false;
+		}
+		readEnd += read;
+		return true;
+	}
+
 	@Override
 	public byte[] readByteMessage() throws IOException, NotConnectedException {
 		String msg = readMessage();
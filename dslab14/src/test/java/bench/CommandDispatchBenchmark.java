@@ -0,0 +1,107 @@
+package bench;
+
+import java.lang.management.ManagementFactory;
+
+import controller.communication.ClientCommand;
+import controller.communication.ComputeTerm;
+
+/**
+ * Measures the CPU time and the allocated bytes per request of dispatching
+ * and tokenizing client requests with the {@link ClientCommand} table and
+ * {@link ComputeTerm}, compared to the former startsWith chain with regular
+ * expressions.
+ * <p/>
+ * Run with {@code ant benchmark -Dbenchmark=bench.CommandDispatchBenchmark}.
+ */
+public class CommandDispatchBenchmark {
+
+	private static final long DURATION_NS = 2000000000L;
+	private static final String[] REQUESTS = {
+		"compute 1 + 2",
+		"compute 1234 * 5678 + 91011 - 1213 / 7",
+		"credits",
+		"buy 1000",
+		"list",
+	};
+
+	private static final com.sun.management.ThreadMXBean THREADS =
+			(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+	private static long sink;
+
+	public static void main(String[] args) {
+		System.out.println("path\tns/request\tbytes/request");
+		for (int round = 0; round < 2; round++) {
+			// the first round is the warm up
+			boolean print = round == 1;
+			measure("regex", false, print);
+			measure("table", true, print);
+		}
+	}
+
+	private static void measure(String name, boolean table, boolean print) {
+		long threadId = Thread.currentThread().getId();
+		long requests = 0;
+		long allocatedBefore = THREADS.getThreadAllocatedBytes(threadId);
+		long start = System.nanoTime();
+		long elapsed;
+		do {
+			for (int i = 0; i < 1000; i++) {
+				String request = REQUESTS[i % REQUESTS.length];
+				sink += table ? dispatchTable(request) : dispatchRegex(request);
+			}
+			requests += 1000;
+			elapsed = System.nanoTime() - start;
+		} while (elapsed < DURATION_NS);
+		long allocated = THREADS.getThreadAllocatedBytes(threadId) - allocatedBefore;
+		if(print) {
+			System.out.printf("%s\t%.1f\t%.1f%n", name, elapsed / (double) requests, allocated / (double) requests);
+		}
+	}
+
+	private static int dispatchTable(String request) {
+		ClientCommand command = ClientCommand.lookup(request);
+		if(command == null) {
+			return 0;
+		}
+		switch (command) {
+		case COMPUTE:
+			ComputeTerm term = ComputeTerm.parse(request, command.argumentOffset(request));
+			int sum = term.getOperators().length();
+			for (int i = 0; i < term.getOperationCount(); i++) {
+				sum += term.getOperator(i) + term.getOperand(i + 1).length();
+			}
+			return sum + term.getOperand(0).length();
+		case BUY:
+			return (int) Long.parseLong(request.substring(command.argumentOffset(request)).trim());
+		default:
+			return command.ordinal();
+		}
+	}
+
+	/**
+	 * The dispatch and parsing as done before the command table.
+	 */
+	private static int dispatchRegex(String request) {
+		if(request.startsWith("logout")) {
+			return 1;
+		} else if(request.startsWith("credits")) {
+			return 2;
+		} else if(request.startsWith("buy")) {
+			String[] array = request.split(" ");
+			return (int) Long.parseLong(array[1]);
+		} else if(request.startsWith("list")) {
+			return 3;
+		} else if(request.startsWith("compute")) {
+			request = request.replaceAll("compute", "").trim();
+			String[] splitTerm = request.split(" ");
+			String operators = request.replaceAll("\\d", "").replaceAll("\\s", "");
+			int sum = operators.length();
+			for (int i = 1; i < splitTerm.length; i += 2) {
+				sum += splitTerm[i].charAt(0) + splitTerm[i + 1].length();
+			}
+			return sum + splitTerm[0].length();
+		}
+		return 0;
+	}
+}
@@ -0,0 +1,98 @@
+package bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import controller.balancing.LeastUsageBalancer;
+import controller.balancing.LoadBalancer;
+import controller.balancing.PowerOfTwoChoicesBalancer;
+import controller.balancing.RoundRobinBalancer;
+import controller.balancing.WeightedBalancer;
+import controller.info.NodeInfo;
+import controller.info.NodeRoutingIndex;
+
+/**
+ * Measures the cost of one node selection including the usage update for
+ * every {@link LoadBalancer} at 10, 1,000 and 10,000 nodes, compared to the
+ * former linear scan over all nodes.
+ * <p/>
+ * Run with {@code ant benchmark -Dbenchmark=bench.LoadBalancerBenchmark}.
+ */
+public class LoadBalancerBenchmark {
+
+	private static final long DURATION_NS = 1000000000L;
+	private static final int[] NODE_COUNTS = { 10, 1000, 10000 };
+
+	public static void main(String[] args) {
+		System.out.println("nodes\tstrategy\tns/selection");
+
+		for (int nodeCount : NODE_COUNTS) {
+			Random random = new Random(nodeCount);
+			final List<NodeInfo> nodeInfos = new ArrayList<>();
+			for (int i = 0; i < nodeCount; i++) {
+				NodeInfo nodeInfo = new NodeInfo("127.0.0.1", 10000 + i, NodeInfo.Status.ONLINE, random.nextInt(10000), "+-*/");
+				nodeInfo.setResources(100 + random.nextInt(900));
+				nodeInfos.add(nodeInfo);
+			}
+			NodeRoutingIndex routingIndex = new NodeRoutingIndex();
+			routingIndex.rebuild(nodeInfos);
+
+			LoadBalancer[] balancers = { new LeastUsageBalancer(), new PowerOfTwoChoicesBalancer(), 
+					new WeightedBalancer(), new RoundRobinBalancer() };
+			for (LoadBalancer balancer : balancers) {
+				balancer.rebuild(routingIndex);
+				report(nodeCount, balancer.getClass().getSimpleName(), measure(balancer, null));
+			}
+			report(nodeCount, "LinearScan", measure(null, nodeInfos));
+		}
+	}
+
+	private static double measure(LoadBalancer balancer, List<NodeInfo> allNodes) {
+		// warm up, then measure
+		run(balancer, allNodes, DURATION_NS / 2);
+		return run(balancer, allNodes, DURATION_NS);
+	}
+
+	private static double run(LoadBalancer balancer, List<NodeInfo> allNodes, long duration) {
+		long selections = 0;
+		long start = System.nanoTime();
+		long elapsed;
+		do {
+			for (int i = 0; i < 1000; i++) {
+				NodeInfo nodeInfo = balancer != null ? balancer.select('+') : linearScan(allNodes, '+');
+				nodeInfo.addUsage(50);
+				if(balancer != null) {
+					balancer.usageChanged(nodeInfo);
+				}
+			}
+			selections += 1000;
+			elapsed = System.nanoTime() - start;
+		} while (elapsed < duration);
+		return elapsed / (double) selections;
+	}
+
+	/**
+	 * The selection as done before the load balancers: filter all nodes into
+	 * a new list, then scan it for the least usage.
+	 */
+	private static NodeInfo linearScan(List<NodeInfo> allNodes, char operation) {
+		List<NodeInfo> available = new ArrayList<>();
+		for (NodeInfo nodeInfo : allNodes) {
+			if(nodeInfo.getStatus().equals(NodeInfo.Status.ONLINE) && nodeInfo.getOperators().contains(operation)) {
+				available.add(nodeInfo);
+			}
+		}
+		NodeInfo leastUsageNode = available.get(0);
+		for (int i = 1; i < available.size(); i++) {
+			if(available.get(i).getUsage() < leastUsageNode.getUsage()) {
+				leastUsageNode = available.get(i);
+			}
+		}
+		return leastUsageNode;
+	}
+
+	private static void report(int nodeCount, String strategy, double nanos) {
+		System.out.printf("%d\t%s\t%.1f%n", nodeCount, strategy, nanos);
+	}
+}
@@ -0,0 +1,93 @@
+package bench;
+
+import java.io.File;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+
+import javax.crypto.Cipher;
+
+import util.KeyCache;
+import util.Keys;
+import util.SecurityUtil;
+import util.SecurityUtils;
+
+/**
+ * Measures the number of logins per second the cloud controller can handle
+ * on a single thread, reading the keys with {@link Keys} on every login
+ * compared to the {@link KeyCache}. A login is the work of the controller in
+ * the RSA handshake: decrypting the message of the client and encrypting the
+ * answer with the public key of the user. The time spent on getting the two
+ * keys alone is measured as well.
+ * <p/>
+ * Run with {@code ant benchmark -Dbenchmark=bench.LoginBenchmark}.
+ */
+public class LoginBenchmark {
+
+	private static final long DURATION_NS = 3000000000L;
+	private static final String CIPHER = "RSA/NONE/OAEPWithSHA256AndMGF1Padding";
+
+	private static final File CONTROLLER_KEY = new File("keys/controller/controller.pem");
+	private static final File USER_KEY = new File("keys/controller/alice.pub.pem");
+
+	public static void main(String[] args) throws Exception {
+		SecurityUtils.registerBouncyCastle();
+
+		Cipher cipher = Cipher.getInstance(CIPHER);
+		cipher.init(Cipher.ENCRYPT_MODE, Keys.readPublicPEM(new File("keys/client/controller.pub.pem")));
+		String message = "!authenticate alice " + new String(SecurityUtil.createBase64Challenge());
+		byte[] encryptedMessage = cipher.doFinal(message.getBytes());
+
+		KeyCache keyCache = new KeyCache();
+		System.out.println("keys\tlogins/s\tus/key lookup");
+		for (int round = 0; round < 2; round++) {
+			// the first round is the warm up
+			double uncached = run(null, encryptedMessage);
+			double uncachedKeys = runKeysOnly(null);
+			double cached = run(keyCache, encryptedMessage);
+			double cachedKeys = runKeysOnly(keyCache);
+			if(round == 1) {
+				System.out.printf("Keys\t%.0f\t%.1f%n", uncached, uncachedKeys);
+				System.out.printf("KeyCache\t%.0f\t%.1f%n", cached, cachedKeys);
+			}
+		}
+	}
+
+	private static double runKeysOnly(KeyCache keyCache) throws Exception {
+		long lookups = 0;
+		long start = System.nanoTime();
+		long elapsed;
+		do {
+			if(keyCache != null) {
+				keyCache.getPrivateKey(CONTROLLER_KEY);
+				keyCache.getPublicKey(USER_KEY);
+			} else {
+				Keys.readPrivatePEM(CONTROLLER_KEY);
+				Keys.readPublicPEM(USER_KEY);
+			}
+			lookups += 2;
+			elapsed = System.nanoTime() - start;
+		} while (elapsed < DURATION_NS / 3);
+		return elapsed / 1000.0 / lookups;
+	}
+
+	private static double run(KeyCache keyCache, byte[] encryptedMessage) throws Exception {
+		long logins = 0;
+		long start = System.nanoTime();
+		long elapsed;
+		do {
+			PrivateKey privateKey = keyCache != null ? keyCache.getPrivateKey(CONTROLLER_KEY) : Keys.readPrivatePEM(CONTROLLER_KEY);
+			Cipher privateCipher = Cipher.getInstance(CIPHER);
+			privateCipher.init(Cipher.DECRYPT_MODE, privateKey);
+			String message = new String(privateCipher.doFinal(encryptedMessage));
+
+			PublicKey publicKey = keyCache != null ? keyCache.getPublicKey(USER_KEY) : Keys.readPublicPEM(USER_KEY);
+			Cipher publicCipher = Cipher.getInstance(CIPHER);
+			publicCipher.init(Cipher.ENCRYPT_MODE, publicKey);
+			publicCipher.doFinal(("!ok " + message.split(" ")[2]).getBytes());
+
+			logins++;
+			elapsed = System.nanoTime() - start;
+		} while (elapsed < DURATION_NS);
+		return logins / (elapsed / 1e9);
+	}
+}
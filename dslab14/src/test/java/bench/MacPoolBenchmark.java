@@ -0,0 +1,90 @@
+package bench;
+
+import java.io.File;
+import java.security.Key;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.crypto.Mac;
+
+import util.Keys;
+import util.MacPool;
+
+/**
+ * Measures the throughput of signing and verifying node messages with the
+ * {@link MacPool} for an increasing number of threads, compared to a single
+ * {@link Mac} which has to be locked to stay correct.
+ * <p/>
+ * Run with {@code ant benchmark -Dbenchmark=bench.MacPoolBenchmark}.
+ */
+public class MacPoolBenchmark {
+
+	private static final long DURATION_MS = 2000;
+	private static final byte[] MESSAGE = "!compute 1234 * 5678 + 91011 - 1213".getBytes();
+
+	public static void main(String[] args) throws Exception {
+		Key key = Keys.readSecretKey(new File("keys/hmac.key"));
+		final MacPool macPool = new MacPool(key);
+		final Mac sharedMac = Mac.getInstance(MacPool.ALGORITHM);
+		sharedMac.init(key);
+		final byte[] hash = macPool.sign(MESSAGE);
+
+		int cores = Runtime.getRuntime().availableProcessors();
+		System.out.println("threads\tpool ops/s\tspeedup\tshared ops/s\tspeedup");
+
+		double poolBase = 0;
+		double sharedBase = 0;
+		for (int threads = 1; ; threads = Math.min(threads * 2, cores)) {
+			double pool = run(threads, new Runnable() {
+				@Override
+				public void run() {
+					macPool.sign(MESSAGE);
+					macPool.verify(MESSAGE, hash);
+				}
+			});
+			double shared = run(threads, new Runnable() {
+				@Override
+				public void run() {
+					synchronized (sharedMac) {
+						sharedMac.doFinal(MESSAGE);
+						sharedMac.doFinal(MESSAGE);
+					}
+				}
+			});
+			if(threads == 1) {
+				poolBase = pool;
+				sharedBase = shared;
+			}
+			System.out.printf("%d\t%.0f\t%.2f\t%.0f\t%.2f%n", threads, pool, pool / poolBase, shared, shared / sharedBase);
+			if(threads == cores) {
+				break;
+			}
+		}
+	}
+
+	/**
+	 * @return the sign and verify pairs per second
+	 */
+	private static double run(int threads, final Runnable operation) throws InterruptedException {
+		final AtomicLong operations = new AtomicLong();
+		final CountDownLatch done = new CountDownLatch(threads);
+		final long end = System.currentTimeMillis() + DURATION_MS;
+
+		for (int i = 0; i < threads; i++) {
+			new Thread(new Runnable() {
+				@Override
+				public void run() {
+					long count = 0;
+					while ((count & 0xff) != 0 || System.currentTimeMillis() < end) {
+						operation.run();
+						count++;
+					}
+					operations.addAndGet(count);
+					done.countDown();
+				}
+			}).start();
+		}
+		done.await();
+		return operations.get() * 1000.0 / DURATION_MS;
+	}
+}
@@ -0,0 +1,114 @@
+package bench;
+
+import java.lang.management.ManagementFactory;
+
+import node.TermEvaluator;
+
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Measures the CPU time and the allocated bytes per request of the compute
+ * path of a node, from the verified {@code !compute} request to the result
+ * message, with the {@link TermEvaluator} compared to the former evaluation
+ * splitting the term with a regular expression. Verifying and signing with
+ * the HMAC and writing the log file are the same for both and not measured.
+ * <p/>
+ * Run with {@code ant benchmark -Dbenchmark=bench.NodeComputeBenchmark}.
+ */
+public class NodeComputeBenchmark {
+
+	private static final long DURATION_NS = 2000000000L;
+	private static final String COMPUTE = "!compute";
+	private static final String RESULT = "!result ";
+	private static final String[] REQUESTS = {
+		"!compute 1 + 2",
+		"!compute 1234 * 5678 + 91011 - 1213 / 7",
+		"!compute -3 - 4",
+		"!compute 100 / 0",
+	};
+
+	private static final com.sun.management.ThreadMXBean THREADS =
+			(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+	private static final TermEvaluator evaluator = new TermEvaluator();
+	private static final StringBuilder response = new StringBuilder(64);
+
+	private static long sink;
+
+	public static void main(String[] args) {
+		for (String request : REQUESTS) {
+			if(!computeSplit(request).equals(computeEvaluator(request))) {
+				throw new IllegalStateException("different results for " + request);
+			}
+		}
+		System.out.println("path\tns/request\trequests/s\tbytes/request");
+		for (int round = 0; round < 2; round++) {
+			// the first round is the warm up
+			boolean print = round == 1;
+			measure("split", false, print);
+			measure("evaluator", true, print);
+		}
+	}
+
+	private static void measure(String name, boolean table, boolean print) {
+		long threadId = Thread.currentThread().getId();
+		long requests = 0;
+		long allocatedBefore = THREADS.getThreadAllocatedBytes(threadId);
+		long start = System.nanoTime();
+		long elapsed;
+		do {
+			for (int i = 0; i < 1000; i++) {
+				String request = REQUESTS[i % REQUESTS.length];
+				sink += (table ? computeEvaluator(request) : computeSplit(request)).length();
+			}
+			requests += 1000;
+			elapsed = System.nanoTime() - start;
+		} while (elapsed < DURATION_NS);
+		long allocated = THREADS.getThreadAllocatedBytes(threadId) - allocatedBefore;
+		if(print) {
+			System.out.printf("%s\t%.1f\t%.0f\t%.1f%n", name, elapsed / (double) requests,
+					requests / (elapsed / 1e9), allocated / (double) requests);
+		}
+	}
+
+	private static String computeEvaluator(String request) {
+		response.setLength(0);
+		response.append(RESULT);
+		evaluator.evaluate(request, COMPUTE.length(), request.length(), response);
+		return response.toString();
+	}
+
+	private static String computeSplit(String request) {
+		String term = request.replaceAll(COMPUTE, "").trim();
+		LogFactory.getLog("test");
+		String[] termArray = term.split("\\s");
+
+		int value1 = Integer.parseInt(termArray[0]);
+		String result = "";
+		for (int i = 1; i + 1 < termArray.length; i += 2) {
+			int value2 = Integer.parseInt(termArray[i + 1]);
+			String operation = termArray[i];
+			if(operation.equals("+")) {
+				value1 = value1 + value2;
+			} else if(operation.equals("-")) {
+				value1 = value1 - value2;
+			} else if(operation.equals("*")) {
+				value1 = value1 * value2;
+			} else if(operation.equals("/")) {
+				if(value2 == 0) {
+					result = "Error: division by 0";
+					break;
+				} else {
+					value1 = (int) Math.round((value1 / (double) value2));
+				}
+			} else {
+				result = "Error: not valid operation";
+				break;
+			}
+		}
+		if(result.isEmpty()) {
+			result = "" + value1;
+		}
+		return RESULT + result;
+	}
+}
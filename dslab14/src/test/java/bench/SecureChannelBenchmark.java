@@ -0,0 +1,115 @@
+package bench;
+
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.channels.ServerSocketChannel;
+
+import javax.crypto.SecretKey;
+
+import util.Base64Channel;
+import util.Channel;
+import util.FramedChannel;
+import util.GcmSecureChannel;
+import util.NioChannel;
+import util.SecureChannel;
+import util.SecurityUtil;
+import util.TcpChannel;
+
+/**
+ * Measures the throughput of the encrypted channel between client and cloud
+ * controller over a loopback connection: AES-CTR with Base64 encoded lines,
+ * as before, compared to AES-GCM with binary frames on socket streams and on
+ * a {@link NioChannel}. One thread sends the messages of a size, the main
+ * thread reads and decrypts them.
+ * <p/>
+ * Run with {@code ant benchmark -Dbenchmark=bench.SecureChannelBenchmark}.
+ */
+public class SecureChannelBenchmark {
+
+	private static final int[] SIZES = { 16, 256, 4096, 65536 };
+	private static final long BYTES_PER_RUN = 64L * 1024 * 1024;
+
+	public static void main(String[] args) throws Exception {
+		SecretKey key = SecurityUtil.createAESKey();
+		byte[] ivParam = SecurityUtil.createIVParam();
+
+		System.out.println("size\tCTR+Base64 msgs/s\tMB/s\tGCM+binary msgs/s\tMB/s\tGCM+binary nio msgs/s\tMB/s");
+		for (int round = 0; round < 2; round++) {
+			// the first round is the warm up
+			for (int size : SIZES) {
+				double ctr = run(false, size, key, ivParam);
+				double gcm = run(true, size, key, ivParam);
+				double nio = runNio(size, key, ivParam);
+				if(round == 1) {
+					System.out.printf("%d\t%.0f\t%.1f\t%.0f\t%.1f\t%.0f\t%.1f%n", size, ctr, ctr * size / 1e6,
+							gcm, gcm * size / 1e6, nio, nio * size / 1e6);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the received messages per second
+	 */
+	private static double run(boolean gcm, int size, SecretKey key, byte[] ivParam) throws Exception {
+		int messages = messageCount(size);
+		byte[] message = SecurityUtil.createRandom(size);
+
+		try (ServerSocket serverSocket = new ServerSocket(0)) {
+			Socket clientSocket = new Socket("localhost", serverSocket.getLocalPort());
+			Socket controllerSocket = serverSocket.accept();
+			Channel sender = gcm
+					? new GcmSecureChannel(new FramedChannel(clientSocket), key, ivParam, true)
+					: new SecureChannel(new Base64Channel(new TcpChannel(clientSocket)), key, ivParam);
+			Channel receiver = gcm
+					? new GcmSecureChannel(new FramedChannel(controllerSocket), key, ivParam, false)
+					: new SecureChannel(new Base64Channel(new TcpChannel(controllerSocket)), key, ivParam);
+			return transfer(sender, receiver, messages, message);
+		}
+	}
+
+	private static double runNio(int size, SecretKey key, byte[] ivParam) throws Exception {
+		try (ServerSocketChannel serverSocketChannel = ServerSocketChannel.open()) {
+			serverSocketChannel.bind(new InetSocketAddress("localhost", 0));
+			NioChannel clientChannel = new NioChannel();
+			clientChannel.connect("localhost", serverSocketChannel.socket().getLocalPort());
+			NioChannel controllerChannel = new NioChannel(serverSocketChannel.accept());
+			Channel sender = new GcmSecureChannel(clientChannel.switchToFrames(), key, ivParam, true);
+			Channel receiver = new GcmSecureChannel(controllerChannel.switchToFrames(), key, ivParam, false);
+			return transfer(sender, receiver, messageCount(size), SecurityUtil.createRandom(size));
+		}
+	}
+
+	private static int messageCount(int size) {
+		return (int) Math.min(Math.max(BYTES_PER_RUN / size, 1000), 200000);
+	}
+
+	private static double transfer(final Channel sender, Channel receiver, final int messages, final byte[] message) throws Exception {
+		int size = message.length;
+		Thread sendThread = new Thread() {
+			@Override
+			public void run() {
+				try {
+					for (int i = 0; i < messages; i++) {
+						sender.sendMessage(message);
+					}
+				} catch (Channel.NotConnectedException e) {
+					e.printStackTrace();
+				}
+			}
+		};
+		long start = System.nanoTime();
+		sendThread.start();
+		for (int i = 0; i < messages; i++) {
+			if(receiver.readByteMessage().length != size) {
+				throw new IllegalStateException("message corrupted");
+			}
+		}
+		long elapsed = System.nanoTime() - start;
+		sendThread.join();
+		sender.close();
+		receiver.close();
+		return messages / (elapsed / 1e9);
+	}
+}
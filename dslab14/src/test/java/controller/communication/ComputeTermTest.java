@@ -0,0 +1,108 @@
+package controller.communication;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests the tokenizer of the terms of compute requests.
+ */
+public class ComputeTermTest {
+
+	private static ComputeTerm parse(String term) {
+		String request = "compute " + term;
+		return ComputeTerm.parse(request, ClientCommand.COMPUTE.argumentOffset(request));
+	}
+
+	@Test
+	public void parsesOperandsAndOperators() {
+		ComputeTerm term = parse("1 + 2 * 3");
+		assertNotNull(term);
+		assertEquals("1 + 2 * 3", term.getTerm());
+		assertEquals("+*", term.getOperators());
+		assertEquals(2, term.getOperationCount());
+		assertEquals('*', term.getOperator(1));
+		assertEquals("1", term.getOperand(0));
+		assertEquals("3", term.getOperand(2));
+	}
+
+	@Test
+	public void acceptsSignedOperands() {
+		ComputeTerm term = parse("+5 - -3");
+		assertNotNull(term);
+		assertEquals("-", term.getOperators());
+		assertEquals("+5", term.getOperand(0));
+		assertEquals("-3", term.getOperand(1));
+	}
+
+	@Test
+	public void rejectsSignWithoutDigits() {
+		assertNull(parse("1 + -"));
+		assertNull(parse("+ + 1"));
+	}
+
+	@Test
+	public void acceptsIntRange() {
+		assertNotNull(parse("-2147483648 + 2147483647"));
+	}
+
+	@Test
+	public void rejectsOperandsOutsideIntRange() {
+		assertNull(parse("2147483648 + 1"));
+		assertNull(parse("1 - -2147483649"));
+		assertNull(parse("99999999999 + 1"));
+		assertNull(parse("1 + 99999999999999999999999"));
+	}
+
+	@Test
+	public void ignoresRepeatedWhitespace() {
+		ComputeTerm term = parse("  1   +  2  ");
+		assertNotNull(term);
+		assertEquals("1   +  2", term.getTerm());
+		assertEquals("2", term.getOperand(1));
+	}
+
+	@Test
+	public void acceptsTabs() {
+		ComputeTerm term = parse("1\t+\t\t2");
+		assertNotNull(term);
+		assertEquals("+", term.getOperators());
+		assertEquals("2", term.getOperand(1));
+	}
+
+	@Test
+	public void rejectsTrailingOperator() {
+		assertNull(parse("1 +"));
+		assertNull(parse("1 + 2 *"));
+	}
+
+	@Test
+	public void rejectsInvalidOperators() {
+		assertNull(parse("1 ++ 2"));
+		assertNull(parse("1 2 3"));
+		assertNull(parse("1 + x"));
+	}
+
+	@Test
+	public void rejectsEmptyTerm() {
+		assertNull(parse(""));
+		assertNull(parse("   "));
+	}
+
+	@Test
+	public void acceptsSingleOperand() {
+		ComputeTerm term = parse("5");
+		assertNotNull(term);
+		assertEquals(0, term.getOperationCount());
+	}
+
+	@Test
+	public void parsesLongTerms() {
+		ComputeTerm term = parse("1 + 2 + 3 + 4 + 5 + 6 + 7 + 8");
+		assertNotNull(term);
+		assertEquals(7, term.getOperationCount());
+		assertEquals("8", term.getOperand(7));
+	}
+}
@@ -0,0 +1,41 @@
+package controller.info;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the bound of the {@link ResultCache}.
+ */
+public class ResultCacheTest {
+
+	@Test
+	public void holdsAtMostTheCapacity() {
+		for (int capacity : new int[] { 1, 3, 16, 20, 1024 }) {
+			ResultCache cache = new ResultCache(capacity);
+			for (int i = 0; i < capacity * 100; i++) {
+				cache.put(ResultCache.key("" + i, '+', "1"), "" + (i + 1));
+			}
+			assertTrue("capacity " + capacity, cache.getSize() <= capacity);
+		}
+	}
+
+	@Test
+	public void evictsLeastRecentlyUsedResult() {
+		ResultCache cache = new ResultCache(1);
+		cache.put("1 + 1", "2");
+		cache.put("2 + 2", "4");
+		assertNull(cache.get("1 + 1"));
+		assertEquals("4", cache.get("2 + 2"));
+	}
+
+	@Test
+	public void zeroCapacityDisablesCache() {
+		ResultCache cache = new ResultCache(0);
+		cache.put("1 + 1", "2");
+		assertNull(cache.get("1 + 1"));
+		assertEquals(0, cache.getSize());
+	}
+}
@@ -0,0 +1,112 @@
+package node;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests the evaluation of the terms of compute requests on a node.
+ */
+public class TermEvaluatorTest {
+
+	private final TermEvaluator evaluator = new TermEvaluator();
+
+	private String evaluate(String term) {
+		StringBuilder result = new StringBuilder();
+		evaluator.evaluate(term, 0, term.length(), result);
+		return result.toString();
+	}
+
+	@Test
+	public void evaluatesFromLeftToRight() {
+		assertEquals("9", evaluate("1 + 2 * 3"));
+		assertEquals(2, evaluator.getOperationCount());
+		assertEquals(2, evaluator.getResultLength());
+	}
+
+	@Test
+	public void evaluatesTermWithinRequest() {
+		String request = "!compute 12 - 20";
+		StringBuilder result = new StringBuilder("!result ");
+		evaluator.evaluate(request, "!compute".length(), request.length(), result);
+		assertEquals("!result -8", result.toString());
+	}
+
+	@Test
+	public void roundsDivisions() {
+		assertEquals("3", evaluate("10 / 4"));
+		assertEquals("-2", evaluate("-10 / 4"));
+		assertEquals("4", evaluate("7 / 2 + 0"));
+	}
+
+	@Test
+	public void parsesSignedOperands() {
+		assertEquals("8", evaluate("+5 - -3"));
+	}
+
+	@Test
+	public void rejectsSignWithoutDigits() {
+		assertEquals(TermEvaluator.INVALID_TERM, evaluate("-"));
+		assertEquals(TermEvaluator.INVALID_TERM, evaluate("1 + -"));
+	}
+
+	@Test
+	public void acceptsIntRange() {
+		assertEquals("-2147483648", evaluate("-2147483648 + 0"));
+		assertEquals(11, evaluator.getResultLength());
+		assertEquals("2147483647", evaluate("2147483647"));
+	}
+
+	@Test
+	public void rejectsOperandsOutsideIntRange() {
+		assertEquals(TermEvaluator.INVALID_TERM, evaluate("2147483648 + 0"));
+		assertEquals(TermEvaluator.INVALID_TERM, evaluate("1 - -2147483649"));
+		assertEquals(TermEvaluator.INVALID_TERM, evaluate("1 + 99999999999999999999999"));
+	}
+
+	@Test
+	public void overflowingResultsWrapAround() {
+		assertEquals("-2147483648", evaluate("2147483647 + 1"));
+	}
+
+	@Test
+	public void ignoresRepeatedWhitespaceAndTabs() {
+		assertEquals("3", evaluate("  1 \t+\t\t2 "));
+	}
+
+	@Test
+	public void ignoresTrailingOperator() {
+		assertEquals("1", evaluate("1 +"));
+		assertEquals(0, evaluator.getOperationCount());
+	}
+
+	@Test
+	public void stopsAtDivisionByZero() {
+		assertEquals(TermEvaluator.DIVISION_BY_ZERO, evaluate("1 / 0 + 2 + 3"));
+		assertEquals(1, evaluator.getOperationCount());
+		assertEquals(TermEvaluator.DIVISION_BY_ZERO.length(), evaluator.getResultLength());
+	}
+
+	@Test
+	public void stopsAtInvalidOperation() {
+		assertEquals(TermEvaluator.INVALID_OPERATION, evaluate("1 + 2 % 2"));
+		assertEquals(2, evaluator.getOperationCount());
+		assertEquals(1 + TermEvaluator.INVALID_OPERATION.length(), evaluator.getResultLength());
+		assertEquals(TermEvaluator.INVALID_OPERATION, evaluate("1 ++ 2"));
+	}
+
+	@Test
+	public void rejectsEmptyTerm() {
+		assertEquals(TermEvaluator.INVALID_TERM, evaluate(""));
+		assertEquals(TermEvaluator.INVALID_TERM, evaluate("  "));
+		assertEquals(0, evaluator.getOperationCount());
+	}
+
+	@Test
+	public void resetsCountsForEveryTerm() {
+		evaluate("1 + 2 + 3 + 4");
+		assertEquals("100", evaluate("99 + 1"));
+		assertEquals(1, evaluator.getOperationCount());
+		assertEquals(3, evaluator.getResultLength());
+	}
+}
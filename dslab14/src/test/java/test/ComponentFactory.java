@@ -1,5 +1,8 @@
 package test;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import admin.AdminConsole;
 import client.Client;
 import client.IClientCli;
@@ -9,6 +12,7 @@ import controller.ICloudControllerCli;
 import node.INodeCli;
 import node.Node;
 import util.Config;
+import util.SecurityUtils;
 import util.TestInputStream;
 import util.TestOutputStream;
 
@@ -16,6 +20,40 @@ import util.TestOutputStream;
  * Provides methods for starting an arbitrary amount of various components.
  */
 public class ComponentFactory {
+	private final Map<String, String> properties = new HashMap<>();
+
+	public ComponentFactory() {
+		// the handshake of client and cloud controller needs the Bouncy Castle provider
+		SecurityUtils.registerBouncyCastle();
+	}
+
+	/**
+	 * Overrides a property in the {@link Config} of every component created
+	 * from now on.
+	 *
+	 * @param key
+	 *            the key of the property
+	 * @param value
+	 *            the value to use instead of the one of the properties file
+	 */
+	public void setProperty(String key, String value) {
+		properties.put(key, value);
+	}
+
+	/**
+	 * Removes all overridden properties.
+	 */
+	public void clearProperties() {
+		properties.clear();
+	}
+
+	private Config configure(Config config) {
+		for (Map.Entry<String, String> property : properties.entrySet()) {
+			config.setProperty(property.getKey(), property.getValue());
+		}
+		return config;
+	}
+
 	/**
 	 * Creates and starts a new client instance using the provided
 	 * {@link Config} and I/O streams.
@@ -33,7 +71,7 @@ public class ComponentFactory {
 		 * Depending on your code you might want to modify the following lines
 		 * but you do not have to.
 		 */
-		Config config = new Config("client");
+		Config config = configure(new Config("client"));
 		return new Client(componentName, config, in, out);
 	}
 
@@ -54,7 +92,7 @@ public class ComponentFactory {
 		 * Depending on your code you might want to modify the following lines
 		 * but you do not have to.
 		 */
-		Config config = new Config("controller");
+		Config config = configure(new Config("controller"));
 		return new CloudController(componentName, config, in, out);
 	}
 
@@ -75,7 +113,7 @@ public class ComponentFactory {
 		 * Depending on your code you might want to modify the following lines
 		 * but you do not have to.
 		 */
-		Config config = new Config(componentName);
+		Config config = configure(new Config(componentName));
 		return new Node(componentName, config, in, out);
 	}
 
@@ -99,7 +137,7 @@ public class ComponentFactory {
 		 * Depending on your code you might want to modify the following lines
 		 * but you do not have to.
 		 */
-		Config config = new Config("admin");
+		Config config = configure(new Config("admin"));
 		return new AdminConsole(componentName, config, in, out);
 	}
 }
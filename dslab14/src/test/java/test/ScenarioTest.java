@@ -1,5 +1,7 @@
 package test;
 
+import client.Client;
+import client.SessionTicket;
 import org.hamcrest.CoreMatchers;
 import org.hamcrest.Matcher;
 import org.junit.Before;
@@ -41,6 +43,8 @@ public class ScenarioTest {
 	static final Map<String, CliComponent> componentMap = new HashMap<>();
 	static CliComponent component;
 
+	static SessionTicket keptTicket;
+
 	@Before
 	public void setUp() {
 		ctx = new StandardEvaluationContext(this);
@@ -66,6 +70,7 @@ public class ScenarioTest {
 	}
 
 	void runStep(Path stepFile) throws Throwable {
+		factory.clearProperties();
 		List<String> lines = Files.readAllLines(stepFile, Charset.defaultCharset());
 		System.out.println(stepFile.getFileName().toString());
 		for (String line : lines) {
@@ -171,6 +176,37 @@ public class ScenarioTest {
 		assertThat(msg, actual, matcher);
 	}
 
+	/**
+	 * Overrides a property in the configuration of the components started
+	 * afterwards in the current step.
+	 *
+	 * @param key   the key of the property
+	 * @param value the value to use
+	 */
+	public void configure(String key, String value) {
+		factory.setProperty(key, value);
+	}
+
+	/**
+	 * Remembers the session ticket the given client holds, to use it again
+	 * with {@link #reuseTicket(String)}.
+	 *
+	 * @param client the name of the client component
+	 */
+	public void keepTicket(String client) {
+		keptTicket = ((Client) componentMap.get(client).component).getSessionTicket();
+	}
+
+	/**
+	 * Hands the ticket remembered by {@link #keepTicket(String)} to the given
+	 * client again, so its next login replays the ticket.
+	 *
+	 * @param client the name of the client component
+	 */
+	public void reuseTicket(String client) {
+		((Client) componentMap.get(client).component).setSessionTicket(keptTicket);
+	}
+
 	/**
 	 * Represents a single component and its input and output streams.
 	 */
@@ -0,0 +1,158 @@
+package util;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests that the {@link GcmSecureChannel} rejects modified, replayed and
+ * reordered messages.
+ */
+public class GcmSecureChannelTest {
+
+	private static final byte[] KEY = "0123456789abcdef0123456789abcdef".getBytes();
+	private static final byte[] IV = "fedcba9876543210".getBytes();
+
+	private MemoryChannel clientTransport;
+	private MemoryChannel serverTransport;
+	private GcmSecureChannel client;
+	private GcmSecureChannel server;
+
+	@Before
+	public void setUp() throws Exception {
+		clientTransport = new MemoryChannel();
+		serverTransport = new MemoryChannel();
+		client = new GcmSecureChannel(clientTransport, KEY, IV, true);
+		server = new GcmSecureChannel(serverTransport, KEY, IV, false);
+	}
+
+	@Test
+	public void deliversMessagesInOrder() throws Exception {
+		client.sendMessage("!credits");
+		client.sendMessage("!list");
+		deliver(0);
+		deliver(1);
+		assertEquals("!credits", server.readMessage());
+		assertEquals("!list", server.readMessage());
+
+		server.sendMessage("You have 500 credits left.");
+		clientTransport.received.add(serverTransport.sent.get(0));
+		assertEquals("You have 500 credits left.", client.readMessage());
+	}
+
+	@Test
+	public void modifiedMessageClosesChannel() throws Exception {
+		client.sendMessage("!buy 100");
+		byte[] frame = clientTransport.sent.get(0);
+		frame[5] ^= 1;
+		deliver(0);
+		assertRejected();
+	}
+
+	@Test
+	public void replayedMessageClosesChannel() throws Exception {
+		client.sendMessage("!buy 100");
+		deliver(0);
+		assertEquals("!buy 100", server.readMessage());
+		deliver(0);
+		assertRejected();
+	}
+
+	@Test
+	public void reorderedMessageClosesChannel() throws Exception {
+		client.sendMessage("!credits");
+		client.sendMessage("!buy 100");
+		deliver(1);
+		assertRejected();
+	}
+
+	@Test
+	public void messageOfOtherDirectionClosesChannel() throws Exception {
+		// a message reflected back to its sender uses the nonce of the other direction
+		client.sendMessage("!credits");
+		clientTransport.received.add(clientTransport.sent.get(0));
+		try {
+			client.readByteMessage();
+			fail("a reflected message must be rejected");
+		} catch (IOException e) {
+			// expected
+		}
+		assertFalse(client.isConnected());
+	}
+
+	private void deliver(int index) {
+		serverTransport.received.add(clientTransport.sent.get(index).clone());
+	}
+
+	private void assertRejected() throws Exception {
+		try {
+			server.readByteMessage();
+			fail("the message must be rejected");
+		} catch (IOException e) {
+			// expected
+		}
+		assertFalse(server.isConnected());
+		assertFalse(serverTransport.isConnected());
+	}
+
+	/**
+	 * Keeps the sent messages and returns the messages added by the test.
+	 */
+	private static class MemoryChannel implements Channel {
+		final List<byte[]> sent = new ArrayList<>();
+		final ArrayDeque<byte[]> received = new ArrayDeque<>();
+		boolean connected = true;
+
+		@Override
+		public boolean connect(String host, int port) {
+			return false;
+		}
+
+		@Override
+		public boolean isConnected() {
+			return connected;
+		}
+
+		@Override
+		public void close() {
+			connected = false;
+		}
+
+		@Override
+		public void sendMessage(String msg) throws NotConnectedException {
+			sendMessage(msg.getBytes());
+		}
+
+		@Override
+		public void sendMessage(byte[] msg) throws NotConnectedException {
+			if(!connected)
+				throw new NotConnectedException();
+			sent.add(msg);
+		}
+
+		@Override
+		public void flush() {
+		}
+
+		@Override
+		public String readMessage() throws IOException, NotConnectedException {
+			byte[] msg = readByteMessage();
+			return msg == null ? null : new String(msg);
+		}
+
+		@Override
+		public byte[] readByteMessage() throws IOException, NotConnectedException {
+			if(!connected)
+				throw new NotConnectedException();
+			return received.poll();
+		}
+	}
+}